@@ -89,7 +89,7 @@ public class Main {
     // PlanoPlus no paciente de teste (30 anos) -> CARDIOLOGIA (base 300)
     pacRepo.buscarPorCpf(cpfTeste).ifPresent(p -> {
         p.setPlano(new PlanoPlus());
-        try { pacRepo.salvarNoArquivo(); } catch (Exception ignored) {}
+        try { pacRepo.atualizar(p); } catch (Exception ignored) {}
     });
 
     LocalDateTime dhPlus = LocalDateTime.now()
@@ -102,7 +102,7 @@ public class Main {
     // PlanoPlus em paciente 65+ (CARDIO) -> 25% -> ~225
     pacRepo.buscarPorCpf(cpfSenior).ifPresent(p -> {
         p.setPlano(new PlanoPlus());
-        try { pacRepo.salvarNoArquivo(); } catch (Exception ignored) {}
+        try { pacRepo.atualizar(p); } catch (Exception ignored) {}
     });
 
     Consulta cPlusSenior = svc.agendar(cpfSenior, "CRM-TEST-1", dhPlus.plusHours(1), "Sala 4");
@@ -111,7 +111,7 @@ public class Main {
 
     // ===== Dia 5 – Internações =====
     System.out.println("\n===== Dia 5 - Internações =====");
-    InternacaoRepo intRepo = new InternacaoRepo("data/internacoes.csv");
+    InternacaoRepo intRepo = new InternacaoRepo("data/internacoes.csv", pacRepo, medRepo);
     InternacaoService intSvc = new InternacaoService(pacRepo, medRepo, intRepo);
 
     // ===== Dia 7 – Relatórios =====
@@ -148,7 +148,7 @@ public class Main {
     }
     pacRepo.buscarPorCpf(cpfPlanoEsp).ifPresent(p -> {
         p.setPlano(new PlanoEspecial());
-        try { pacRepo.salvarNoArquivo(); } catch (Exception ignored) {}
+        try { pacRepo.atualizar(p); } catch (Exception ignored) {}
     });
 
     LocalDateTime inicioEsp = LocalDateTime.now().withSecond(0).withNano(0);
@@ -38,7 +38,7 @@ public class MainMenu {
         this.pacRepo = new PacienteRepo("data/pacientes.csv");
         this.medRepo = new MedicoRepo("data/medicos.csv");
         ConsultaRepo   conRepo = new ConsultaRepo("data/consultas.csv", pacRepo, medRepo);
-        InternacaoRepo intRepo = new InternacaoRepo("data/internacoes.csv");
+        InternacaoRepo intRepo = new InternacaoRepo("data/internacoes.csv", pacRepo, medRepo);
 
         this.ag = new AgendamentoService(pacRepo, medRepo, conRepo);
         this.is = new InternacaoService(pacRepo, medRepo, intRepo);
@@ -188,6 +188,13 @@ public class MainMenu {
         System.out.println("Consultas FUTURAS: "  + futuras.size());
         System.out.println("Consultas PASSADAS: " + passadas.size());
 
+        // só a primeira página (a lista completa pode ser enorme)
+        var proximas = rl.consultasFuturas(null, null, null, null, 5);
+        proximas.itens().forEach(c ->
+            System.out.println("- " + c.getDataHora() + " | " + c.getMedico().getNome() + " | " + c.getLocal())
+        );
+        if (proximas.temMais()) System.out.println("  (mais consultas futuras...)");
+
         try {
             var internados = rl.pacientesInternadosAgora();
             System.out.println("Internados agora: " + internados.size());
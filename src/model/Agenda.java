@@ -0,0 +1,42 @@
+package model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Agenda = linha do tempo de UM médico (ou de UM local), ordenada por horário.
+// Cada consulta ocupa o intervalo [dataHora, dataHora + duracao).
+// Como a TreeMap é ordenada, achar conflito é olhar só os vizinhos: O(log n),
+// não importa quantas consultas existam no histórico.
+public class Agenda {
+
+    private final Duration duracao;                                  // duração de cada consulta
+    private final TreeMap<LocalDateTime, Consulta> porInicio = new TreeMap<>();
+
+    public Agenda(Duration duracao) {
+        if (duracao == null || duracao.isNegative() || duracao.isZero())
+            throw new IllegalArgumentException("Duração inválida");
+        this.duracao = duracao;
+    }
+
+    // Intervalos [A, A+d) e [B, B+d) se sobrepõem se A < B+d E B < A+d.
+    // Basta checar o último início <= inicio e o primeiro início >= inicio.
+    public boolean conflita(LocalDateTime inicio) {
+        Map.Entry<LocalDateTime, Consulta> antes = porInicio.floorEntry(inicio);
+        if (antes != null && antes.getKey().plus(duracao).isAfter(inicio)) return true;
+
+        Map.Entry<LocalDateTime, Consulta> depois = porInicio.ceilingEntry(inicio);
+        return depois != null && depois.getKey().isBefore(inicio.plus(duracao));
+    }
+
+    // Ocupa o horário da consulta (quem chama já checou conflita())
+    public void reservar(Consulta c) {
+        porInicio.put(c.getDataHora(), c);
+    }
+
+    // Libera o horário (ex.: consulta cancelada); só remove se for a mesma consulta
+    public void liberar(Consulta c) {
+        porInicio.remove(c.getDataHora(), c);
+    }
+}
@@ -1,7 +1,6 @@
 package model;
 
 import java.time.LocalDateTime; // data/hora da consulta
-import java.util.UUID;          // gerador de id único (string aleatória)
 
 // Representa uma consulta entre um Paciente e um Medico.
 // Tem dados fixos (id, paciente, medico, dataHora, local, precoFinal)
@@ -9,7 +8,7 @@ import java.util.UUID;          // gerador de id único (string aleatória)
 public class Consulta {
 
     // --- atributos principais (imutáveis depois de criada) ---
-    private final String id;               // identificador único (UUID)
+    private final String id;               // identificador único (GeradorId; arquivos antigos têm UUID)
     private final Paciente paciente;       // quem será atendido
     private final Medico medico;           // quem atende
     private final LocalDateTime dataHora;  // quando
@@ -23,7 +22,14 @@ public class Consulta {
 
     // Construtor: cria consulta já como "AGENDADA"
     public Consulta(Paciente paciente, Medico medico, LocalDateTime dataHora, String local, double precoFinal) {
+        this(GeradorId.novoId(), paciente, medico, dataHora, local, precoFinal); // gera id único e ordenável
+    }
+
+    // Construtor usado pelo repositório: reaproveita o id já persistido
+    // (o journal de eventos referencia as consultas por id)
+    public Consulta(String id, Paciente paciente, Medico medico, LocalDateTime dataHora, String local, double precoFinal) {
         // 1) validações defensivas (evitam objetos inválidos)
+        if (id == null || id.isBlank()) throw new IllegalArgumentException("id vazio");
         if (paciente == null) throw new IllegalArgumentException("Paciente nulo");
         if (medico == null)   throw new IllegalArgumentException("Médico nulo");
         if (dataHora == null) throw new IllegalArgumentException("dataHora nula");
@@ -31,7 +37,7 @@ public class Consulta {
         if (precoFinal < 0)   throw new IllegalArgumentException("preço negativo");
 
         // 2) inicializações dos campos "fixos"
-        this.id = UUID.randomUUID().toString(); // gera id único
+        this.id = id;
         this.paciente   = paciente;
         this.medico     = medico;
         this.dataHora   = dataHora;
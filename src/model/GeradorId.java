@@ -0,0 +1,47 @@
+package model;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Gera ids curtos, únicos e ORDENÁVEIS pelo momento da criação (no estilo ULID).
+//
+// Formato (21 caracteres, base32 Crockford, que mantém a ordem alfabética = ordem numérica):
+//   13 chars: "tique" = milissegundos desde 1970 << 16 | sequência no mesmo milissegundo
+//    8 chars: 40 bits aleatórios (evita colisão entre processos diferentes)
+//
+// Por que não UUID.randomUUID()? Ele usa SecureRandom, que é lento e disputa trava
+// quando várias threads geram ids ao mesmo tempo. Aqui é só um compareAndSet
+// (sem trava) + ThreadLocalRandom (um gerador por thread).
+public final class GeradorId {
+
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int BITS_SEQUENCIA = 16;
+
+    // último tique entregue (monotônico: nunca repete nem volta, mesmo se o relógio voltar)
+    private static final AtomicLong ultimoTique = new AtomicLong();
+
+    private GeradorId() {}
+
+    public static String novoId() {
+        long agora = System.currentTimeMillis() << BITS_SEQUENCIA;
+        long tique;
+        while (true) {
+            long anterior = ultimoTique.get();
+            tique = Math.max(agora, anterior + 1);
+            if (ultimoTique.compareAndSet(anterior, tique)) break;
+        }
+
+        char[] id = new char[21];
+        escrever(id, 0, 13, tique);
+        escrever(id, 13, 8, ThreadLocalRandom.current().nextLong() & 0xFF_FFFF_FFFFL);
+        return new String(id);
+    }
+
+    // escreve 'valor' em base32 com exatamente 'tamanho' dígitos (zeros à esquerda)
+    private static void escrever(char[] destino, int inicio, int tamanho, long valor) {
+        for (int k = inicio + tamanho - 1; k >= inicio; k--) {
+            destino[k] = BASE32[(int) (valor & 31)];
+            valor >>>= 5;
+        }
+    }
+}
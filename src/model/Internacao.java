@@ -12,13 +12,19 @@ public class Internacao{
     private final double custoBaseDia;
 
     public Internacao(Paciente paciente, Medico medicoResponsavel, String quarto,LocalDateTime entrada, double custoBaseDia){
+        this(GeradorId.novoId(), paciente, medicoResponsavel, quarto, entrada, custoBaseDia);
+    }
+
+    // usado pelo repositório ao carregar do CSV: mantém o id já salvo
+    public Internacao(String id, Paciente paciente, Medico medicoResponsavel, String quarto,LocalDateTime entrada, double custoBaseDia){
+       if (id == null || id.isBlank())      throw new IllegalArgumentException("id vazio");
        if (paciente == null)                throw new IllegalArgumentException("Paciente nulo");
        if (medicoResponsavel == null)       throw new IllegalArgumentException("Médico responsável nulo");
        if (quarto == null || quarto.isBlank()) throw new IllegalArgumentException("Quarto vazio");
        if (entrada == null)                 throw new IllegalArgumentException("Entrada nula");
        if (custoBaseDia < 0)                throw new IllegalArgumentException("Custo base negativo");
 
-        this.id = java.util.UUID.randomUUID().toString();
+        this.id = id;
         this.paciente = paciente;               
         this.medicoResponsavel = medicoResponsavel;
         this.quarto = quarto;
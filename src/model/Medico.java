@@ -1,10 +1,16 @@
 package model;
 
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
 public class Medico extends Pessoa {
 
     private String crm;
     private Especialidade especialidade; // enum
     private double custoBaseConsulta;
+    // avisado com (CRM antigo, CRM novo) quando o CRM muda (o MedicoRepo troca a entrada do índice);
+    // o aviso vem antes da troca, então se o ouvinte recusar o CRM continua o antigo
+    private BiConsumer<String, String> ouvinteCrm;
 
     //construtor
     public Medico(String nome, String cpf, int idade, String crm, Especialidade especialidade, double custoBaseConsulta){
@@ -16,7 +22,13 @@ public class Medico extends Pessoa {
 
     //getters, setters
     public String getCrm() {return crm;}
-    public void setCrm(String crm) { this.crm = crm;}
+    public void setCrm(String crm) {
+        String antigo = this.crm;
+        if (ouvinteCrm != null && !Objects.equals(antigo, crm)) ouvinteCrm.accept(antigo, crm);
+        this.crm = crm;
+    }
+
+    public void setOuvinteCrm(BiConsumer<String, String> ouvinte) { this.ouvinteCrm = ouvinte; }
 
     public Especialidade getEspecialidade(){return especialidade;}
     public void setEspecialidade(Especialidade especialidade){this.especialidade = especialidade;}
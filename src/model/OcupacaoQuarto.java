@@ -0,0 +1,101 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// OcupacaoQuarto = linha do tempo das internações de UM quarto, ordenada pela entrada.
+// Cada internação ocupa [entrada, saida) — ou [entrada, infinito) enquanto não tem alta.
+//
+// Invariante de 'porEntrada': ali as internações NUNCA se sobrepõem. Então, ordenadas pela
+// entrada, elas também estão ordenadas pela saída, e para checar conflito basta olhar os
+// vizinhos na TreeMap: O(log n). A alta só "encurta" o intervalo, então não quebra a invariante.
+//
+// Só que a carga não descarta dados salvos: um CSV antigo (ou editado à mão) pode ter
+// internações sobrepostas no mesmo quarto. Essas vão para 'sobrepostas' (fora da invariante)
+// e são conferidas uma a uma — na prática a lista é vazia ou quase. Sem isso, uma internação
+// aberta A seguida de uma B já encerrada fazia ocupado() olhar só B e achar o quarto livre.
+//
+// A chave é (entrada, id): duas internações com a mesma entrada ficam as duas registradas.
+public class OcupacaoQuarto {
+
+    private record Chave(LocalDateTime entrada, String id) implements Comparable<Chave> {
+        public int compareTo(Chave o) {
+            int c = entrada.compareTo(o.entrada);
+            return (c != 0) ? c : id.compareTo(o.id);
+        }
+    }
+
+    private final TreeMap<Chave, Internacao> porEntrada = new TreeMap<>();
+    private final List<Internacao> sobrepostas = new ArrayList<>();
+
+    // menor chave possível com essa entrada ("" vem antes de qualquer id)
+    private static Chave inicioDe(LocalDateTime entrada) {
+        return new Chave(entrada, "");
+    }
+
+    private static Chave chave(Internacao i) {
+        return new Chave(i.getEntrada(), i.getId());
+    }
+
+    // [entrada, saida) ainda ocupa o instante 'inicio'?
+    private static boolean ocupaEm(Internacao i, LocalDateTime inicio) {
+        return i.getSaida() == null || i.getSaida().isAfter(inicio);
+    }
+
+    // Uma nova internação [inicio, infinito) sobrepõe alguma existente?
+    // - qualquer internação que entra em 'inicio' ou depois: sim (a nova não tem fim)
+    // - a última que entrou antes (na linha sem sobreposição): só se ainda não tinha saído em 'inicio'
+    // - as sobrepostas da carga: cada uma, pela mesma regra
+    public boolean ocupado(LocalDateTime inicio) {
+        if (porEntrada.ceilingKey(inicioDe(inicio)) != null) return true;
+
+        Map.Entry<Chave, Internacao> antes = porEntrada.lowerEntry(inicioDe(inicio));
+        if (antes != null && ocupaEm(antes.getValue(), inicio)) return true;
+
+        for (Internacao s : sobrepostas) {
+            if (!s.getEntrada().isBefore(inicio) || ocupaEm(s, inicio)) return true;
+        }
+        return false;
+    }
+
+    // Registra a internação no quarto. Pelo internar() ela nunca conflita (quem chama já
+    // checou ocupado()); só na carga uma sobreposta vai para a lista à parte.
+    public void ocupar(Internacao i) {
+        if (conflitaNaLinha(i)) sobrepostas.add(i);
+        else porEntrada.put(chave(i), i);
+    }
+
+    // Remove a internação (ex.: cancelada); só remove se for a mesma
+    public void liberar(Internacao i) {
+        porEntrada.remove(chave(i), i);
+        sobrepostas.remove(i); // Internacao não sobrescreve equals: remove esta instância
+    }
+
+    // Na carga: a internação se sobrepõe a alguma que já está no quarto?
+    public boolean conflitaCom(Internacao i) {
+        if (conflitaNaLinha(i)) return true;
+        for (Internacao s : sobrepostas) {
+            if (seSobrepoem(s, i)) return true;
+        }
+        return false;
+    }
+
+    // Conflito com a linha sem sobreposição (intervalos [entrada, saida), saída null = ainda
+    // internado). Olha os vizinhos na ordem de entrada: o anterior pode não ter saído, e o
+    // seguinte pode começar antes desta sair.
+    private boolean conflitaNaLinha(Internacao i) {
+        Chave k = chave(i);
+        Map.Entry<Chave, Internacao> antes = porEntrada.lowerEntry(k);
+        if (antes != null && ocupaEm(antes.getValue(), i.getEntrada())) return true;
+        Map.Entry<Chave, Internacao> depois = porEntrada.higherEntry(k);
+        return depois != null && ocupaEm(i, depois.getKey().entrada());
+    }
+
+    // A_início < B_fim E B_início < A_fim (fim null = infinito)
+    private static boolean seSobrepoem(Internacao a, Internacao b) {
+        return ocupaEm(b, a.getEntrada()) && ocupaEm(a, b.getEntrada());
+    }
+}
@@ -5,12 +5,20 @@
 
 package model; 
 
+import java.util.Objects;
+import java.util.function.BiConsumer;
+
 public abstract class Pessoa { // public- a classe pode ser vista e usada por qualquer pacote
 
     private String nome; // private- apenas a propria classe pode acessar esses campos
     private String cpf;
     private int idade;
 
+    // Quem guarda esta pessoa num índice por CPF (o PacienteRepo) é avisado quando o CPF
+    // muda, com (CPF antigo, CPF novo), e troca só essa entrada do índice.
+    // O aviso vem ANTES da troca: se o ouvinte recusar (exceção), o CPF continua o antigo.
+    private BiConsumer<String, String> ouvinteCpf;
+
 
     // construtor (para inicializar)
 
@@ -30,7 +38,13 @@ public abstract class Pessoa { // public- a classe pode ser vista e usada por qu
     //que controlam o acesso.
 
     public String getCpf(){return cpf;}
-    public void setCpf(String cpf){this.cpf= cpf;}
+    public void setCpf(String cpf){
+        String antigo = this.cpf;
+        if (ouvinteCpf != null && !Objects.equals(antigo, cpf)) ouvinteCpf.accept(antigo, cpf);
+        this.cpf = cpf;
+    }
+
+    public void setOuvinteCpf(BiConsumer<String, String> ouvinte) { this.ouvinteCpf = ouvinte; }
 
     public int getIdade() { return idade; }
     public void setIdade(int idade) { this.idade = idade; }
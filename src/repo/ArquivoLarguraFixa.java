@@ -0,0 +1,162 @@
+// ArquivoLarguraFixa.java — grava um CSV com TODAS as linhas do mesmo tamanho (em bytes),
+// completando com espaços. Assim a linha k começa sempre em k * (largura + 1) e uma linha
+// alterada pode ser regravada no lugar, sem reescrever o arquivo inteiro.
+// O arquivo continua sendo um CSV normal: os espaços do fim são ignorados na leitura (trim).
+
+package repo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * ArquivoLarguraFixa
+ *
+ * "Dirty tracking": o REPOSITÓRIO sabe quais registros mudaram (cadastro, importação,
+ * troca de CPF/CRM, atualizar(...)) e passa só essas linhas, pelo número da linha
+ * (0 = cabeçalho). Cada uma é escrita com FileChannel.write na posição exata; o custo é
+ * proporcional ao que mudou, não ao tamanho do cadastro. Cai para a reescrita completa quando:
+ * - ainda não conhecemos a largura (arquivo não adotado nem gravado nesta execução);
+ * - o arquivo foi mexido por fora (assinatura tamanho/data mudou);
+ * - alguma linha não cabe mais na largura atual (a largura nova ganha uma folga);
+ * - quem chama não sabe o que mudou (gravar(linhas)).
+ *
+ * O cabeçalho gravado termina com MARCA: só um arquivo com a marca é adotado na carga.
+ * Um CSV comum que por acaso tenha todas as linhas do mesmo tamanho não é tratado como
+ * largura fixa (a marca fica depois do ';' final, então a leitura por prefixo do
+ * cabeçalho, ex. "cpf;", continua igual).
+ *
+ * Ligado com -Dhospital.registrosFixos=true (usado por PacienteRepo e MedicoRepo).
+ */
+final class ArquivoLarguraFixa {
+
+    static final String MARCA = ";#larguraFixa";
+    private static final int FOLGA = 32; // bytes extras por linha para nomes maiores no futuro
+    private static final byte ESPACO = ' ';
+    private static final byte FIM_DE_LINHA = '\n';
+
+    private final String caminho;
+    private int largura = -1;          // bytes por linha, sem o '\n'
+    private int linhasNoArquivo = 0;   // quantas linhas (cabeçalho incluído) o arquivo tem
+    private String assinaturaGravada;
+
+    ArquivoLarguraFixa(String caminho) {
+        this.caminho = caminho;
+    }
+
+    static boolean habilitado() {
+        return Boolean.getBoolean("hospital.registrosFixos");
+    }
+
+    // Logo depois de carregar: se o arquivo no disco foi gravado por nós (cabeçalho com MARCA),
+    // é de largura fixa e tem exatamente uma linha por registro carregado, a PRIMEIRA gravação
+    // da execução já pode ser no lugar. (Linhas puladas na carga mudariam a contagem, e aí não adotamos.)
+    void adotar(List<String> linhas) throws IOException {
+        Path path = Paths.get(caminho);
+        if (!Files.exists(path) || linhas.isEmpty()) return;
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long tamanho = ch.size();
+            ByteBuffer inicio = ByteBuffer.allocate((int) Math.min(tamanho, 4096));
+            while (inicio.hasRemaining() && ch.read(inicio) > 0) { }
+            int w = -1;
+            for (int k = 0; k < inicio.position(); k++) {
+                if (inicio.get(k) == FIM_DE_LINHA) { w = k; break; }
+            }
+            if (w <= 0 || tamanho != (long) linhas.size() * (w + 1)) return;
+
+            String cabecalho = new String(inicio.array(), 0, w, StandardCharsets.UTF_8).trim();
+            if (!cabecalho.equals(linhas.get(0) + MARCA)) return; // não foi gravado como largura fixa
+            for (String l : linhas) {
+                if (l.getBytes(StandardCharsets.UTF_8).length > w) return;
+            }
+            largura = w;
+        }
+        linhasNoArquivo = linhas.size();
+        assinaturaGravada = CSVUtil.assinatura(caminho);
+    }
+
+    // Sem saber o que mudou: reescreve o arquivo inteiro (cabeçalho incluído)
+    void gravar(List<String> linhas) throws IOException {
+        byte[][] bytes = new byte[linhas.size()][];
+        int maior = 0;
+        for (int k = 0; k < linhas.size(); k++) {
+            bytes[k] = linhas.get(k).getBytes(StandardCharsets.UTF_8);
+            maior = Math.max(maior, bytes[k].length);
+        }
+        reescreverTudo(bytes, maior);
+    }
+
+    // Grava só as linhas alteradas/novas ('alteradas': número da linha -> texto). 'total' = quantas
+    // linhas o arquivo passa a ter; linhas novas (>= as que já existem) precisam estar em 'alteradas'.
+    // Se não der para gravar no lugar, usa 'tudo' para reescrever. Devolve quantas linhas foram escritas.
+    int gravar(int total, SortedMap<Integer, String> alteradas, Supplier<List<String>> tudo) throws IOException {
+        boolean noLugar = largura >= 0 && total >= linhasNoArquivo
+                && CSVUtil.assinatura(caminho).equals(assinaturaGravada);
+
+        Map<Integer, byte[]> bytes = new TreeMap<>();
+        for (Map.Entry<Integer, String> e : alteradas.entrySet()) {
+            if (!noLugar) break;
+            byte[] b = e.getValue().getBytes(StandardCharsets.UTF_8);
+            if (b.length > largura || e.getKey() <= 0 || e.getKey() >= total) noLugar = false;
+            bytes.put(e.getKey(), b);
+        }
+        for (int k = linhasNoArquivo; noLugar && k < total; k++) {
+            if (!bytes.containsKey(k)) noLugar = false; // linha nova sem conteúdo: não dá para adivinhar
+        }
+
+        if (!noLugar) {
+            List<String> linhas = tudo.get();
+            gravar(linhas);
+            return linhas.size();
+        }
+
+        try (FileChannel ch = FileChannel.open(Paths.get(caminho), StandardOpenOption.WRITE)) {
+            for (Map.Entry<Integer, byte[]> e : bytes.entrySet()) {
+                escreverLinha(ch, e.getValue(), (long) e.getKey() * (largura + 1));
+            }
+        }
+        linhasNoArquivo = total;
+        assinaturaGravada = CSVUtil.assinatura(caminho);
+        return bytes.size();
+    }
+
+    private void reescreverTudo(byte[][] bytes, int maior) throws IOException {
+        if (bytes.length > 0) {
+            bytes[0] = (new String(bytes[0], StandardCharsets.UTF_8) + MARCA).getBytes(StandardCharsets.UTF_8);
+            maior = Math.max(maior, bytes[0].length);
+        }
+        largura = ((maior + FOLGA + 15) / 16) * 16; // arredonda para múltiplo de 16
+        ByteBuffer tudo = ByteBuffer.allocate(bytes.length * (largura + 1));
+        for (byte[] linha : bytes) tudo.put(preencher(linha));
+        tudo.flip();
+
+        Path path = Paths.get(caminho);
+        Path parent = path.getParent();
+        if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                               StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (tudo.hasRemaining()) ch.write(tudo);
+        }
+        linhasNoArquivo = bytes.length;
+        assinaturaGravada = CSVUtil.assinatura(caminho);
+    }
+
+    private void escreverLinha(FileChannel ch, byte[] linha, long posicao) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(preencher(linha));
+        while (buf.hasRemaining()) posicao += ch.write(buf, posicao);
+    }
+
+    // linha + espaços até 'largura' + '\n'
+    private byte[] preencher(byte[] linha) {
+        byte[] saida = new byte[largura + 1];
+        System.arraycopy(linha, 0, saida, 0, linha.length);
+        Arrays.fill(saida, linha.length, largura, ESPACO);
+        saida[largura] = FIM_DE_LINHA;
+        return saida;
+    }
+}
@@ -3,10 +3,22 @@
 
 package repo;
 
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * CSVUtil
@@ -25,6 +37,11 @@ import java.util.*;
  */
 public class CSVUtil {
 
+    // A partir deste tamanho o arquivo é lido em pedaços paralelos
+    private static final long LIMIAR_PARALELO = 4L * 1024 * 1024;   // 4 MB
+    // Tamanho máximo de cada pedaço (limita a memória de bytes em voo)
+    private static final int  TAMANHO_MAX_PEDACO = 8 * 1024 * 1024; // 8 MB
+
     /**
      * Lê todas as linhas de um arquivo de texto (UTF-8).
      *
@@ -45,6 +62,197 @@ public class CSVUtil {
         return Files.readAllLines(path, StandardCharsets.UTF_8);
     }
 
+    /**
+     * Percorre o arquivo registro a registro, SEM carregar tudo na memória.
+     *
+     * Lê por um buffer de caracteres reaproveitado e entrega cada linha útil
+     * ao visitante como uma {@link LinhaCSV} (também reaproveitada).
+     * Linhas em branco são ignoradas; a primeira linha é pulada se começar
+     * com {@code prefixoCabecalho} (ex.: "cpf;").
+     * Memória usada: proporcional à MAIOR linha, não ao tamanho do arquivo.
+     *
+     * @param caminhoArquivo caminho do arquivo (se não existir, não faz nada)
+     * @param prefixoCabecalho prefixo que identifica o cabeçalho (ou null se não houver)
+     * @param visitante chamado uma vez por registro, na ordem do arquivo
+     * @throws IOException em erros de I/O
+     */
+    public static void percorrerRegistros(String caminhoArquivo, String prefixoCabecalho,
+                                          Consumer<LinhaCSV> visitante) throws IOException {
+        Path path = Paths.get(caminhoArquivo);
+        if (!Files.exists(path)) return;
+
+        try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            percorrerRegistros(in, prefixoCabecalho, visitante);
+        }
+    }
+
+    // Mesma leitura, a partir de um Reader qualquer (o chamador fecha o Reader)
+    static void percorrerRegistros(Reader in, String prefixoCabecalho,
+                                   Consumer<LinhaCSV> visitante) throws IOException {
+        LinhaCSV linha = new LinhaCSV();
+        char[] buf = new char[8192];
+        int ini = 0;        // início da linha pendente em buf
+        int fim = 0;        // fim dos dados válidos em buf
+        int busca = 0;      // de onde continuar procurando '\n'
+        boolean eof = false;
+        boolean primeira = true;
+
+        while (true) {
+            int nl = -1;
+            for (int k = busca; k < fim; k++) {
+                if (buf[k] == '\n') { nl = k; break; }
+            }
+
+            if (nl < 0) {
+                if (eof) {
+                    // última linha sem '\n' no final
+                    if (ini < fim) entregar(linha, buf, ini, fim, primeira, prefixoCabecalho, visitante);
+                    return;
+                }
+                // abre espaço: move o pedaço pendente para o início ou aumenta o buffer
+                if (ini > 0) {
+                    System.arraycopy(buf, ini, buf, 0, fim - ini);
+                    fim -= ini;
+                    ini = 0;
+                }
+                if (fim == buf.length) buf = Arrays.copyOf(buf, buf.length * 2);
+                busca = fim;
+                int n = in.read(buf, fim, buf.length - fim);
+                if (n < 0) eof = true; else fim += n;
+                continue;
+            }
+
+            if (entregar(linha, buf, ini, nl, primeira, prefixoCabecalho, visitante)) primeira = false;
+            ini = nl + 1;
+            busca = ini;
+        }
+    }
+
+    // Recorta espaços/'\r' das pontas e entrega a linha; devolve true se a linha não era vazia
+    private static boolean entregar(LinhaCSV linha, char[] buf, int ini, int fim, boolean primeira,
+                                    String prefixoCabecalho, Consumer<LinhaCSV> visitante) {
+        while (ini < fim && buf[ini] <= ' ') ini++;        // equivalente ao trim()
+        while (fim > ini && buf[fim - 1] <= ' ') fim--;
+        if (ini == fim) return false;                      // linha em branco
+
+        linha.reiniciar(buf, ini, fim);
+        if (primeira && prefixoCabecalho != null && linha.comecaCom(prefixoCabecalho)) return true;
+        visitante.accept(linha);
+        return true;
+    }
+
+    /**
+     * Lê o arquivo e converte cada registro em um objeto, mantendo a ordem do arquivo.
+     *
+     * Arquivos pequenos: leitura sequencial com {@link #percorrerRegistros}.
+     * Arquivos grandes: o arquivo é dividido em faixas de bytes alinhadas em '\n'
+     * e cada faixa é convertida em uma tarefa do ForkJoinPool comum;
+     * no final os resultados são juntados na ordem original.
+     *
+     * O conversor pode ser chamado em várias threads ao mesmo tempo:
+     * ele NÃO deve alterar estado compartilhado (só ler e criar objetos).
+     * Se devolver null, o registro é ignorado.
+     *
+     * @param caminhoArquivo caminho do arquivo (se não existir, devolve lista vazia)
+     * @param prefixoCabecalho prefixo do cabeçalho (ou null se não houver)
+     * @param conversor transforma a linha em objeto (ou null para pular)
+     * @return objetos convertidos, na ordem em que aparecem no arquivo
+     * @throws IOException em erros de I/O
+     */
+    public static <T> List<T> lerRegistros(String caminhoArquivo, String prefixoCabecalho,
+                                           Function<LinhaCSV, T> conversor) throws IOException {
+        Path path = Paths.get(caminhoArquivo);
+        if (!Files.exists(path)) return new ArrayList<>();
+
+        long tamanho = Files.size(path);
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (tamanho < LIMIAR_PARALELO || pool.getParallelism() < 2) {
+            List<T> resultado = new ArrayList<>();
+            percorrerRegistros(caminhoArquivo, prefixoCabecalho, linha -> {
+                T obj = conversor.apply(linha);
+                if (obj != null) resultado.add(obj);
+            });
+            return resultado;
+        }
+
+        // 1) calcula os cortes: cada um cai logo depois de um '\n'
+        long pedacos = Math.max(pool.getParallelism(), (tamanho + TAMANHO_MAX_PEDACO - 1) / TAMANHO_MAX_PEDACO);
+        long passo = tamanho / pedacos;
+        List<Long> cortes = new ArrayList<>();
+        cortes.add(0L);
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long k = 1; k < pedacos; k++) {
+                long corte = proximoInicioDeLinha(ch, Math.max(k * passo, cortes.get(cortes.size() - 1)), tamanho);
+                if (corte > cortes.get(cortes.size() - 1) && corte < tamanho) cortes.add(corte);
+            }
+        }
+        cortes.add(tamanho);
+
+        // 2) uma tarefa por faixa [cortes[k], cortes[k+1])
+        List<ForkJoinTask<List<T>>> tarefas = new ArrayList<>();
+        for (int k = 0; k + 1 < cortes.size(); k++) {
+            long ini = cortes.get(k);
+            long fim = cortes.get(k + 1);
+            String cabecalho = (k == 0) ? prefixoCabecalho : null; // só o 1º pedaço tem cabeçalho
+            tarefas.add(pool.submit(() -> converterFaixa(path, ini, fim, cabecalho, conversor)));
+        }
+
+        // 3) junta na ordem original
+        List<T> resultado = new ArrayList<>();
+        for (ForkJoinTask<List<T>> t : tarefas) {
+            try {
+                resultado.addAll(t.join());
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        return resultado;
+    }
+
+    // Posição logo após o próximo '\n' a partir de 'pos' (ou 'tamanho' se não houver)
+    private static long proximoInicioDeLinha(FileChannel ch, long pos, long tamanho) throws IOException {
+        ByteBuffer bb = ByteBuffer.allocate(4096);
+        while (pos < tamanho) {
+            bb.clear();
+            int n = ch.read(bb, pos);
+            if (n <= 0) break;
+            for (int k = 0; k < n; k++) {
+                if (bb.get(k) == '\n') return pos + k + 1;
+            }
+            pos += n;
+        }
+        return tamanho;
+    }
+
+    // Lê os bytes da faixa e converte as linhas dela (roda dentro do ForkJoinPool).
+    // Cortar em '\n' é seguro em UTF-8: esse byte nunca aparece no meio de um caractere.
+    private static <T> List<T> converterFaixa(Path path, long ini, long fim, String prefixoCabecalho,
+                                              Function<LinhaCSV, T> conversor) {
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer bb = ByteBuffer.allocate((int) (fim - ini));
+            while (bb.hasRemaining()) {
+                if (ch.read(bb, ini + bb.position()) < 0) break;
+            }
+            bb.flip();
+
+            // mesmo comportamento da leitura sequencial: byte inválido em UTF-8 é ERRO
+            // (MalformedInputException), não vira '\uFFFD' em silêncio
+            CharBuffer cb = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPORT)
+                    .onUnmappableCharacter(CodingErrorAction.REPORT)
+                    .decode(bb);
+            List<T> parcial = new ArrayList<>();
+            Reader in = new CharArrayReader(cb.array(), cb.arrayOffset(), cb.limit());
+            percorrerRegistros(in, prefixoCabecalho, linha -> {
+                T obj = conversor.apply(linha);
+                if (obj != null) parcial.add(obj);
+            });
+            return parcial;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * Escreve TODAS as linhas no arquivo (UTF-8), sobrescrevendo o conteúdo anterior.
      * Cria a(s) pasta(s) pai automaticamente se não existirem (ex.: "data/").
@@ -74,12 +282,103 @@ public class CSVUtil {
         );
     }
 
+    /**
+     * Troca o conteúdo do arquivo de forma ATÔMICA: escreve tudo num arquivo temporário
+     * ao lado ("consultas.csv.tmp"), força para o disco (fsync) e só então renomeia por cima
+     * do original. Se o programa cair no meio, fica o arquivo antigo inteiro ou o novo
+     * inteiro — nunca um arquivo pela metade (o .tmp que sobrar é só lixo, ninguém lê).
+     *
+     * @param caminhoArquivo caminho do arquivo (ex.: "data/consultas.csv")
+     * @param linhas conteúdo novo, uma String por linha
+     * @throws IOException em erros de I/O
+     */
+    public static void substituirAtomicamente(String caminhoArquivo, List<String> linhas) throws IOException {
+        Path path = Paths.get(caminhoArquivo);
+        Path parent = path.getParent();
+        if (parent != null && !Files.exists(parent)) {
+            Files.createDirectories(parent);
+        }
+
+        Path temporario = Paths.get(caminhoArquivo + ".tmp");
+        StringBuilder sb = new StringBuilder();
+        for (String l : linhas) sb.append(l).append(System.lineSeparator());
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(sb.toString());
+        try (FileChannel ch = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) ch.write(bytes);
+            ch.force(false); // o conteúdo novo está no disco ANTES de aparecer com o nome oficial
+        }
+        Files.move(temporario, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Diz se o arquivo tem pelo menos um registro além do cabeçalho
+     * (lê só o começo do arquivo, não o arquivo todo).
+     *
+     * @param caminhoArquivo caminho do CSV
+     * @return false se o arquivo não existe, está vazio ou só tem o cabeçalho
+     * @throws IOException em erros de I/O
+     */
+    public static boolean temRegistros(String caminhoArquivo) throws IOException {
+        Path path = Paths.get(caminhoArquivo);
+        if (!Files.exists(path)) return false;
+        try (BufferedReader br = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            int naoVazias = 0;
+            String linha;
+            while ((linha = br.readLine()) != null) {
+                if (!linha.isBlank() && ++naoVazias == 2) return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * "Assinatura" barata de um ou mais arquivos: tamanho + data de modificação.
+     * Se a assinatura não mudou, o conteúdo (na prática) também não mudou,
+     * e quem tem os dados em cache pode evitar reler o arquivo.
+     *
+     * @param caminhos arquivos a considerar (os que não existem também entram)
+     * @return texto que muda sempre que algum arquivo muda
+     * @throws IOException em erros de I/O
+     */
+    public static String assinatura(String... caminhos) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (String caminho : caminhos) {
+            Path path = Paths.get(caminho);
+            if (Files.exists(path)) {
+                sb.append(Files.size(path)).append('@').append(Files.getLastModifiedTime(path).toMillis());
+            } else {
+                sb.append('-');
+            }
+            sb.append('|');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Caminho "irmão" do CSV, trocando a extensão.
+     *
+     * Ex.: ("data/consultas.csv", ".log") -> "data/consultas.log"
+     *
+     * @param caminhoArquivo caminho do CSV
+     * @param extensao nova extensão (com o ponto)
+     * @return caminho com a extensão trocada (ou acrescentada, se não terminar em .csv)
+     */
+    public static String trocarExtensao(String caminhoArquivo, String extensao) {
+        return caminhoArquivo.endsWith(".csv")
+                ? caminhoArquivo.substring(0, caminhoArquivo.length() - 4) + extensao
+                : caminhoArquivo + extensao;
+    }
+
     /**
      * Divide uma linha CSV em campos usando ';' como separador.
      * O sufixo "-1" no split preserva campos vazios no final.
      *
      * Ex.: "a;b;c;" -> ["a","b","c",""]
      *
+     * Cria uma String por campo. Nos loaders, prefira LinhaCSV.de(linha): os campos
+     * ficam como posições na linha e números/datas são lidos sem String intermediária.
+     *
      * @param linha linha completa do CSV
      * @return lista de campos (já recortados)
      */
@@ -117,5 +416,10 @@ public class CSVUtil {
            List<String> cols = CSVUtil.dividirLinha(lidas.get(i));
            // cols.get(0) = cpf, cols.get(1) = nome, ...
        }
+
+       // Ler em streaming (arquivos grandes: não carrega tudo na memória):
+       CSVUtil.percorrerRegistros("data/pacientes.csv", "cpf;", linha -> {
+           String cpf = linha.campo(0); // linha.campo(1) = nome, ...
+       });
        ------------------------------------------------------------- */
 }
@@ -0,0 +1,277 @@
+// ColunasConsultas.java — as consultas em forma de COLUNAS (um array primitivo por campo),
+// para relatórios que varrem milhares/milhões de linhas.
+// Em vez de seguir Consulta -> Medico -> Especialidade em cada linha, o laço percorre
+// int[]/long[]/byte[] em sequência (bom para o cache do processador, sem ponteiros).
+
+package repo;
+
+import model.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ColunasConsultas
+ *
+ * Uma linha por consulta (mesma ordem do identity map do ConsultaRepo):
+ *   medico[k]   ordinal do médico   (ver {@link #medicoDoOrdinal})
+ *   paciente[k] ordinal do paciente (ver {@link #ordinalPaciente})
+ *   minuto[k]   data/hora em minutos desde 1970 (mesma conta do SnapshotBinario)
+ *   status[k]   StatusConsulta.ordinal()
+ *   centavos[k] preço final em centavos (long: soma sem erro de arredondamento)
+ *
+ * O objeto entregue pelo ConsultaRepo.colunas() é uma FOTO: não muda depois de entregue,
+ * pode ser lido por várias threads sem trava. O repositório mantém um {@link Construtor}
+ * atualizado a cada evento (agendar/concluir/cancelar) e tira uma foto nova só quando
+ * algo mudou. As colunas só crescem no fim, então a foto compartilha os arrays
+ * (ela só enxerga as 'tamanho' primeiras linhas); a coluna de status, que muda no meio,
+ * é copiada antes da primeira alteração depois de uma foto.
+ *
+ * Para listagens por data (paginação), {@link #linhaNaOrdem} dá as linhas em ordem de
+ * (data/hora, id). Essa ordem é montada na primeira vez que alguém pede e fica guardada
+ * na foto; a foto seguinte aproveita a da anterior (só as linhas novas são ordenadas e intercaladas).
+ */
+public final class ColunasConsultas {
+
+    private static final StatusConsulta[] STATUS = StatusConsulta.values();
+
+    private final int tamanho;
+    private final Consulta[] consultas;
+    private final int[] medico;
+    private final int[] paciente;
+    private final int[] minuto;
+    private final byte[] status;
+    private final long[] centavos;
+
+    // dicionários: ordinal -> objeto (só crescem, como as colunas)
+    private final Medico[] medicos;
+    private final int qtdMedicos;
+    private final int qtdPacientes;
+    // objeto -> ordinal, compartilhados com o Construtor (só crescem; ordinal >= qtd = ainda não é desta foto)
+    private final Map<Medico, Integer> ordinalPorMedico;
+    private final Map<Paciente, Integer> ordinalPorPaciente;
+
+    // linhas ordenadas por (data/hora, id): 'ordem' desta foto (montada sob demanda) e a de uma foto
+    // anterior, que cobre as 'base.length' primeiras linhas
+    private final int[] base;
+    private volatile int[] ordem;
+
+    private ColunasConsultas(Construtor c, int[] base) {
+        this.tamanho = c.tamanho;
+        this.consultas = c.consultas;
+        this.medico = c.medico;
+        this.paciente = c.paciente;
+        this.minuto = c.minuto;
+        this.status = c.status;
+        this.centavos = c.centavos;
+        this.medicos = c.medicos;
+        this.qtdMedicos = c.qtdMedicos;
+        this.qtdPacientes = c.qtdPacientes;
+        this.ordinalPorMedico = c.ordinalMedico;
+        this.ordinalPorPaciente = c.ordinalPaciente;
+        this.base = base;
+    }
+
+    // ===== conversões =====
+
+    public static int minutoDe(LocalDateTime dataHora) {
+        return (int) Math.floorDiv(dataHora.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    public static LocalDateTime dataHoraDe(int minuto) {
+        return LocalDateTime.ofEpochSecond(minuto * 60L, 0, ZoneOffset.UTC);
+    }
+
+    public static long centavosDe(double valor) {
+        return Math.round(valor * 100);
+    }
+
+    // ===== acesso por linha =====
+
+    public int tamanho() { return tamanho; }
+
+    public Consulta consulta(int linha)  { checar(linha); return consultas[linha]; }
+    public int medico(int linha)         { checar(linha); return medico[linha]; }
+    public int paciente(int linha)       { checar(linha); return paciente[linha]; }
+    public int minuto(int linha)         { checar(linha); return minuto[linha]; }
+    public long centavos(int linha)      { checar(linha); return centavos[linha]; }
+    public StatusConsulta status(int linha) { checar(linha); return STATUS[status[linha]]; }
+
+    // ===== dicionários =====
+
+    public Medico medicoDoOrdinal(int ordinal) {
+        Objects.checkIndex(ordinal, qtdMedicos);
+        return medicos[ordinal];
+    }
+
+    // Ordinal deste médico (o mesmo objeto), ou -1 se ele não tem consulta nenhuma
+    public int ordinalMedico(Medico m) {
+        Integer o = (m == null) ? null : ordinalPorMedico.get(m);
+        return (o != null && o < qtdMedicos) ? o : -1;
+    }
+
+    // Ordinal deste paciente, ou -1
+    public int ordinalPaciente(Paciente p) {
+        Integer o = (p == null) ? null : ordinalPorPaciente.get(p);
+        return (o != null && o < qtdPacientes) ? o : -1;
+    }
+
+    // ===== ordem por data =====
+
+    // Linha que está na posição 'posicao' da ordem por (data/hora, id)
+    public int linhaNaOrdem(int posicao) {
+        checar(posicao);
+        return ordem()[posicao];
+    }
+
+    // Quantas linhas vêm antes de (dataHora, id) na ordem — busca binária.
+    // id null = compara só a data/hora; incluirIguais = conta também as linhas iguais à chave.
+    // Ex.: posicaoNaOrdem(t, null, true) = primeira posição com data/hora depois de t.
+    public int posicaoNaOrdem(LocalDateTime dataHora, String id, boolean incluirIguais) {
+        int[] o = ordem();
+        int m = minutoDe(dataHora);
+        int lo = 0, hi = tamanho;
+        while (lo < hi) {
+            int meio = (lo + hi) >>> 1;
+            int k = o[meio];
+            int cmp = Integer.compare(minuto[k], m); // corte pelo minuto antes de olhar o objeto
+            if (cmp == 0) cmp = consultas[k].getDataHora().compareTo(dataHora);
+            if (cmp == 0 && id != null) cmp = consultas[k].getId().compareTo(id);
+            if (cmp < 0 || (cmp == 0 && incluirIguais)) lo = meio + 1;
+            else hi = meio;
+        }
+        return lo;
+    }
+
+    private int[] ordem() {
+        int[] o = ordem;
+        if (o == null) ordem = o = ordenar(); // duas threads podem montar ao mesmo tempo: o resultado é o mesmo
+        return o;
+    }
+
+    // Ordena só as linhas que a base não cobre e intercala com ela
+    private int[] ordenar() {
+        int feitas = (base == null) ? 0 : base.length;
+        Integer[] novas = new Integer[tamanho - feitas];
+        for (int k = 0; k < novas.length; k++) novas[k] = feitas + k;
+        Arrays.sort(novas, this::compararLinhas);
+
+        int[] o = new int[tamanho];
+        int i = 0, j = 0, n = 0;
+        while (i < feitas && j < novas.length) {
+            o[n++] = (compararLinhas(base[i], novas[j]) <= 0) ? base[i++] : novas[j++];
+        }
+        while (i < feitas) o[n++] = base[i++];
+        while (j < novas.length) o[n++] = novas[j++];
+        return o;
+    }
+
+    private int compararLinhas(int a, int b) {
+        int cmp = Integer.compare(minuto[a], minuto[b]);
+        if (cmp == 0) cmp = consultas[a].getDataHora().compareTo(consultas[b].getDataHora());
+        return (cmp != 0) ? cmp : consultas[a].getId().compareTo(consultas[b].getId());
+    }
+
+    private void checar(int linha) {
+        Objects.checkIndex(linha, tamanho);
+    }
+
+    /**
+     * Construtor (mutável) usado só pelo ConsultaRepo, sempre com a trava do repositório.
+     * Cada chamada de {@link #foto()} devolve um ColunasConsultas que não muda mais.
+     */
+    static final class Construtor {
+
+        private int tamanho;
+        private Consulta[] consultas = new Consulta[64];
+        private int[] medico = new int[64];
+        private int[] paciente = new int[64];
+        private int[] minuto = new int[64];
+        private byte[] status = new byte[64];
+        private long[] centavos = new long[64];
+        private final Map<String, Integer> linhaPorId = new HashMap<>();
+
+        private Medico[] medicos = new Medico[16];
+        private int qtdMedicos;
+        // concorrentes porque as fotos também consultam (Medico/Paciente não redefinem equals: vale a identidade)
+        private final Map<Medico, Integer> ordinalMedico = new ConcurrentHashMap<>();
+        private int qtdPacientes;
+        private final Map<Paciente, Integer> ordinalPaciente = new ConcurrentHashMap<>();
+
+        private ColunasConsultas ultimaFoto;     // != null: nada mudou desde ela
+        private ColunasConsultas fotoAnterior;   // a última foto entregue (a ordem dela serve de base para a próxima)
+        private boolean statusCompartilhado;     // a última foto usa o mesmo array de status
+
+        Construtor(Collection<Consulta> todas) {
+            for (Consulta c : todas) registrar(c);
+        }
+
+        // Consulta nova vira linha nova; consulta já conhecida só tem o status atualizado
+        void registrar(Consulta c) {
+            Integer linha = linhaPorId.get(c.getId());
+            if (linha != null) {
+                byte st = (byte) c.getStatus().ordinal();
+                if (status[linha] == st) return;
+                if (statusCompartilhado) {
+                    status = status.clone(); // a foto continua vendo o status antigo
+                    statusCompartilhado = false;
+                }
+                status[linha] = st;
+                ultimaFoto = null;
+                return;
+            }
+
+            if (tamanho == consultas.length) crescer();
+            int k = tamanho;
+            consultas[k] = c;
+            medico[k]    = indiceMedico(c.getMedico());
+            paciente[k]  = indicePaciente(c.getPaciente());
+            minuto[k]    = minutoDe(c.getDataHora());
+            status[k]    = (byte) c.getStatus().ordinal();
+            centavos[k]  = centavosDe(c.getPrecoFinal());
+            linhaPorId.put(c.getId(), k);
+            tamanho++; // só depois de preencher: a foto nunca olha além do próprio tamanho
+            ultimaFoto = null;
+        }
+
+        ColunasConsultas foto() {
+            if (ultimaFoto == null) {
+                int[] base = null;
+                if (fotoAnterior != null) base = (fotoAnterior.ordem != null) ? fotoAnterior.ordem : fotoAnterior.base;
+                ultimaFoto = fotoAnterior = new ColunasConsultas(this, base);
+                statusCompartilhado = true;
+            }
+            return ultimaFoto;
+        }
+
+        // Arrays novos (maiores): as fotos antigas ficam com os arrays antigos
+        private void crescer() {
+            int n = consultas.length * 2;
+            consultas = Arrays.copyOf(consultas, n);
+            medico    = Arrays.copyOf(medico, n);
+            paciente  = Arrays.copyOf(paciente, n);
+            minuto    = Arrays.copyOf(minuto, n);
+            status    = Arrays.copyOf(status, n);
+            centavos  = Arrays.copyOf(centavos, n);
+            statusCompartilhado = false;
+        }
+
+        private int indiceMedico(Medico m) {
+            Integer o = ordinalMedico.get(m);
+            if (o != null) return o;
+            if (qtdMedicos == medicos.length) medicos = Arrays.copyOf(medicos, qtdMedicos * 2);
+            medicos[qtdMedicos] = m;
+            ordinalMedico.put(m, qtdMedicos);
+            return qtdMedicos++;
+        }
+
+        private int indicePaciente(Paciente p) {
+            Integer o = ordinalPaciente.get(p);
+            if (o != null) return o;
+            ordinalPaciente.put(p, qtdPacientes);
+            return qtdPacientes++;
+        }
+    }
+}
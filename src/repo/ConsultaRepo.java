@@ -4,15 +4,51 @@ package repo;
 import model.*;
 import java.util.*;
 import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 
 public class ConsultaRepo {
-    private final String caminhoArquivo;      // ex.: "data/consultas.csv"
+    // Depois de quantos eventos no journal fazemos a compactação automática
+    private static final int LIMITE_EVENTOS = 500;
+
+    private static final String CABECALHO = "id;cpfPaciente;crmMedico;dataHoraISO;local;status;diagnostico;prescricao;precoFinal";
+
+    private final String caminhoArquivo;      // ex.: "data/consultas.csv" (snapshot)
+    private final String caminhoJournal;      // ex.: "data/consultas.log"  (eventos desde o snapshot)
+    private final String caminhoBinario;      // ex.: "data/consultas.bin"  (cópia binária do snapshot)
     private final PacienteRepo pacienteRepo;  // para buscar Paciente por CPF
     private final MedicoRepo   medicoRepo;    // para buscar Médico por CRM
+    private final ParticoesConsultas particoes; // snapshot dividido por mês (opcional)
+
+    private int eventosNoJournal = 0;         // atualizado ao carregar e a cada evento
+
+    // Identity map: cada id tem UMA instância em memória, compartilhada por quem
+    // carregar (AgendamentoService, RelatorioService...). Recarregar reaproveita as instâncias.
+    private Map<String, Consulta> identidade = new LinkedHashMap<>();
+    private String assinaturaCarregada = null; // tamanho/data do snapshot+journal na última carga
+    private String assinaturaSnapshotCarregada = null; // só do snapshot (sem o journal)
+    private MarcaDeLeitura marcaJournal = null;        // até onde o journal já foi lido
+    // local, diagnóstico e prescrição se repetem muito: as linhas carregadas compartilham as Strings
+    private final DicionarioStrings textos = new DicionarioStrings(4096);
+    // mesmas consultas em colunas (para relatórios); montado na primeira chamada de colunas()
+    private ColunasConsultas.Construtor colunas = null;
+    // concluídas por médico/especialidade, mantidas a cada evento; montadas na primeira consulta
+    private ContadoresConcluidas concluidas = null;
+    // receita/quantidades/economia por dia e mês (idem: montados na primeira consulta)
+    private TotaisFinanceiros totais = null;
+    // true = o cache estava em dia e as únicas mudanças desde então são NOSSAS e ainda estão na fila
+    // de gravação (modo PERIODICO): a assinatura é atualizada depois de esvaziar a fila
+    private boolean escritaPropriaPendente = false;
+
+    // o journal é gravado pela fila compartilhada (modo de durabilidade configurável)
+    private final FilaDeGravacao gravacao = FilaDeGravacao.padrao();
 
     public ConsultaRepo(String caminhoArquivo, PacienteRepo pacRepo, MedicoRepo medRepo) {
         this.caminhoArquivo = caminhoArquivo;
+        this.caminhoJournal = CSVUtil.trocarExtensao(caminhoArquivo, ".log");
+        this.caminhoBinario = CSVUtil.trocarExtensao(caminhoArquivo, ".bin");
+        this.particoes      = new ParticoesConsultas(caminhoArquivo, CABECALHO);
         this.pacienteRepo   = pacRepo;
         this.medicoRepo     = medRepo;
     }
@@ -20,85 +56,414 @@ public class ConsultaRepo {
     // SALVAR: grava todas as consultas no CSV
     // Formato combinado:
     // id;cpfPaciente;crmMedico;dataHoraISO;local;status;diagnostico;prescricao;precoFinal
-    public void salvarTodos(List<Consulta> consultas) throws IOException {
+    // Com partições por mês ligadas, grava só os meses que mudaram e deixa o consultas.csv
+    // só com o cabeçalho (o conteúdo antigo dele passa para os arquivos de cada mês).
+    public synchronized void salvarTodos(List<Consulta> consultas) throws IOException {
+        if (ParticoesConsultas.habilitado()) {
+            particoes.gravar(consultas, ConsultaRepo::linhaSnapshot);
+            if (CSVUtil.temRegistros(caminhoArquivo)) CSVUtil.substituirAtomicamente(caminhoArquivo, List.of(CABECALHO));
+            return;
+        }
+
         List<String> linhas = new ArrayList<>();
-        linhas.add("id;cpfPaciente;crmMedico;dataHoraISO;local;status;diagnostico;prescricao;precoFinal");
+        linhas.add(CABECALHO);
+        for (Consulta c : consultas) linhas.add(linhaSnapshot(c));
+        CSVUtil.substituirAtomicamente(caminhoArquivo, linhas); // temporário + fsync + rename: nunca fica pela metade
+
+        // cópia binária opcional (gravada DEPOIS do CSV, então fica "mais nova" que ele)
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarConsultas(caminhoBinario, consultas);
+    }
+
+    private static String linhaSnapshot(Consulta c) {
+        return CSVUtil.juntarCampos(List.of(
+            c.getId(),
+            c.getPaciente().getCpf(),
+            c.getMedico().getCrm(),
+            c.getDataHora().toString(),
+            c.getLocal(),
+            c.getStatus().name(),
+            c.getDiagnostico() == null ? "" : c.getDiagnostico(),
+            c.getPrescricao()  == null ? "" : c.getPrescricao(),
+            String.valueOf(c.getPrecoFinal())
+        ));
+    }
+
+    // ===== JOURNAL (log de eventos, só acrescenta no final) =====
+    // Cada mudança de estado vira UMA linha, em vez de reescrever o CSV inteiro:
+    // AGENDADA;id;cpfPaciente;crmMedico;dataHoraISO;local;precoFinal
+    // CONCLUIDA;id;diagnostico;prescricao
+    // CANCELADA;id
+    // Os métodos públicos são synchronized: com várias threads agendando, as linhas
+    // nunca se misturam e a compactação não roda no meio de um append.
+
+    public synchronized void registrarAgendada(Consulta c) throws IOException {
+        anexarEventos(List.of(c), List.of(linhaAgendada(c)));
+    }
+
+    // Lote: todas as linhas AGENDADA vão para o journal numa única escrita
+    public synchronized void registrarAgendadas(List<Consulta> novas) throws IOException {
+        if (novas.isEmpty()) return;
+        List<String> linhas = new ArrayList<>(novas.size());
+        for (Consulta c : novas) linhas.add(linhaAgendada(c));
+        anexarEventos(novas, linhas);
+    }
+
+    public synchronized void registrarConcluida(Consulta c) throws IOException {
+        anexarEventos(List.of(c), List.of(CSVUtil.juntarCampos(List.of(
+            StatusConsulta.CONCLUIDA.name(),
+            c.getId(),
+            c.getDiagnostico() == null ? "" : c.getDiagnostico(),
+            c.getPrescricao()  == null ? "" : c.getPrescricao()
+        ))));
+    }
+
+    public synchronized void registrarCancelada(Consulta c) throws IOException {
+        anexarEventos(List.of(c), List.of(CSVUtil.juntarCampos(List.of(StatusConsulta.CANCELADA.name(), c.getId()))));
+    }
+
+    private static String linhaAgendada(Consulta c) {
+        return CSVUtil.juntarCampos(List.of(
+            StatusConsulta.AGENDADA.name(),
+            c.getId(),
+            c.getPaciente().getCpf(),
+            c.getMedico().getCrm(),
+            c.getDataHora().toString(),
+            c.getLocal(),
+            String.valueOf(c.getPrecoFinal())
+        ));
+    }
+
+    private void anexarEventos(List<Consulta> afetadas, List<String> linhas) throws IOException {
+        boolean cacheEmDia = escritaPropriaPendente || assinaturaEmDia();
+        gravacao.acrescentar(caminhoJournal, linhas);
+        eventosNoJournal += linhas.size();
+
+        // a própria escrita não invalida o cache: as instâncias já estão atualizadas em memória
+        for (Consulta c : afetadas) identidade.put(c.getId(), c);
+        registrarNosDerivados(afetadas);
+        if (cacheEmDia) {
+            if (gravacao.gravaNaHora()) marcarEmDia();
+            else escritaPropriaPendente = true; // o arquivo ainda vai mudar quando a fila gravar
+        }
+
+        if (eventosNoJournal >= LIMITE_EVENTOS) compactar();
+    }
+
+    // COMPACTAR: aplica o journal no snapshot e zera o journal.
+    // Ordem importa:
+    // 1) o snapshot novo vai para um arquivo temporário, com fsync, e só então é renomeado por
+    //    cima do antigo (se cair aqui, o snapshot antigo + o journal inteiro continuam valendo);
+    //    com partições, os meses antigos (já com tudo do journal) também vão para .gz aqui;
+    // 2) só DEPOIS o journal é esvaziado, pela mesma fila das outras escritas do journal.
+    // Se cair entre 1 e 2, o journal antigo é reaplicado sobre o snapshot novo: AGENDADA de id
+    // que já está no snapshot é ignorada e CONCLUIDA/CANCELADA de consulta já fechada também.
+    public synchronized void compactar() throws IOException {
+        salvarTodos(carregarTodos()); // carregarTodos esvazia a fila: todo evento pendente entra no snapshot
+        YearMonth limite = ParticoesConsultas.limiteParaArquivar();
+        if (ParticoesConsultas.habilitado() && limite != null) particoes.arquivarAntesDe(limite);
+
+        gravacao.substituir(caminhoJournal, List.of());
+        eventosNoJournal = 0;
+        // o conteúdo é o mesmo que está em memória
+        if (gravacao.gravaNaHora()) marcarEmDia();
+        else escritaPropriaPendente = true; // o journal só fica vazio quando a fila gravar
+    }
+
+    // CARREGAR: lê o snapshot (CSV) e depois reaplica o journal por cima.
+    // O id salvo é mantido, porque os eventos do journal apontam para ele.
+    // O STATUS é restaurado chamando concluir()/cancelar() conforme o arquivo.
+    // Se os arquivos não mudaram desde a última carga, devolve as mesmas instâncias sem reler;
+    // se mudaram, relê, mas reaproveita a instância já existente de cada id.
+    public synchronized List<Consulta> carregarTodos() throws IOException {
+        atualizarCache();
+        return new ArrayList<>(identidade.values());
+    }
+
+    // Mesmo conteúdo do carregarTodos(), em colunas de tipos primitivos (ver ColunasConsultas).
+    // A foto devolvida não muda; chame de novo para ver agendamentos/status mais novos.
+    public synchronized ColunasConsultas colunas() throws IOException {
+        atualizarCache();
+        if (colunas == null) colunas = new ColunasConsultas.Construtor(identidade.values());
+        return colunas.foto();
+    }
+
+    // ===== CONTADORES DE CONCLUÍDAS (para os painéis) =====
+    // Respondem só com o que está em memória, sem olhar os arquivos: refletem os eventos
+    // registrados por este repositório e a última carga (carregarTodos/colunas/...).
+    // Por isso podem ser consultados a toda hora.
+
+    // Médico com mais consultas concluídas e a quantidade
+    public synchronized Optional<Map.Entry<Medico, Long>> medicoComMaisConcluidas() throws IOException {
+        ContadoresConcluidas cont = contadores();
+        return cont.medicoLider().map(m -> Map.entry(m, cont.doMedico(m)));
+    }
+
+    // Especialidade com mais consultas concluídas e a quantidade
+    public synchronized Optional<Map.Entry<Especialidade, Long>> especialidadeComMaisConcluidas() throws IOException {
+        ContadoresConcluidas cont = contadores();
+        return cont.especialidadeLider().map(e -> Map.entry(e, cont.daEspecialidade(e)));
+    }
+
+    private ContadoresConcluidas contadores() throws IOException {
+        if (concluidas == null) {
+            if (assinaturaCarregada == null) atualizarCache(); // nunca carregou: lê uma vez
+            concluidas = new ContadoresConcluidas(identidade.values());
+        }
+        return concluidas;
+    }
+
+    // Totais das consultas entre as datas (inclusivas; null = sem limite), agrupados
+    // por dia, mês, médico ou plano. Também só memória, como os contadores acima.
+    public synchronized SortedMap<String, TotaisFinanceiros.Totais> totais(LocalDate inicio, LocalDate fim,
+                                                                          TotaisFinanceiros.Agrupamento por) throws IOException {
+        if (totais == null) {
+            if (assinaturaCarregada == null) atualizarCache();
+            totais = new TotaisFinanceiros();
+            for (Consulta c : identidade.values()) totais.registrarConsulta(c);
+        }
+        return totais.somar(inicio, fim, por);
+    }
+
+    // Consultas criadas/alteradas entram nas estruturas derivadas que já estiverem montadas
+    private void registrarNosDerivados(List<Consulta> afetadas) {
+        for (Consulta c : afetadas) {
+            if (colunas != null) colunas.registrar(c);
+            if (concluidas != null) concluidas.registrar(c);
+            if (totais != null) totais.registrarConsulta(c);
+        }
+        marcarMesesAlterados(afetadas);
+    }
+
+    // Partições: o mês de cada consulta tocada por um evento é regravado na próxima compactação
+    private void marcarMesesAlterados(List<Consulta> afetadas) {
+        if (!ParticoesConsultas.habilitado()) return;
+        for (Consulta c : afetadas) particoes.marcarAlterado(ParticoesConsultas.mesDe(c));
+    }
+
+    // Deixa o identity map igual aos arquivos (relendo só o necessário)
+    private void atualizarCache() throws IOException {
+        sincronizarComFila();
+
+        MarcaDeLeitura marca = MarcaDeLeitura.de(caminhoJournal); // ANTES de ler (ver MarcaDeLeitura.de)
+        String assinatura = assinaturaAtual();
+        if (assinatura.equals(assinaturaCarregada)) return;
+
+        // Snapshot igual e journal só cresceu (ex.: outro processo registrou eventos):
+        // lê só as linhas novas do journal, sem reprocessar o snapshot
+        String assinaturaSnapshot = assinaturaSnapshot();
+        if (marcaJournal != null && assinaturaSnapshot.equals(assinaturaSnapshotCarregada) && marcaJournal.soCresceu()) {
+            int[] lidos = {0};
+            List<Consulta> afetadas = new ArrayList<>();
+            marcaJournal.percorrerNovos(null, visitanteDoJournal(identidade, null, null, lidos, afetadas));
+            registrarNosDerivados(afetadas);
+            eventosNoJournal += lidos[0];
+            marcaJournal = marca;
+            assinaturaCarregada = assinatura;
+            return;
+        }
+
+        Map<String, Consulta> porId = new LinkedHashMap<>(); // mantém a ordem de criação
+
+        // 1) snapshot
+        for (Consulta c : carregarSnapshot()) porId.put(c.getId(), c);
+
+        // 2) journal: sempre sequencial, porque a ordem dos eventos importa
+        List<Consulta> doJournal = new ArrayList<>();
+        eventosNoJournal = reaplicarJournal(porId, null, null, doJournal);
+        marcarMesesAlterados(doJournal); // esses meses ainda não estão nos arquivos de mês
+
+        identidade = porId; // ids que sumiram do arquivo saem do identity map
+        colunas = null;     // remontadas na próxima chamada de colunas()
+        concluidas = null;  // idem para os contadores
+        totais = null;      // e para os totais financeiros
+        assinaturaCarregada = assinatura;
+        assinaturaSnapshotCarregada = assinaturaSnapshot;
+        marcaJournal = marca;
+    }
+
+    // CARREGAR SÓ UM PERÍODO: consultas com dataHora em [inicio, fim) (null = sem limite).
+    // Se o cache está em dia, só filtra na memória. Senão, com partições ligadas, lê apenas
+    // os meses do período (+ journal); sem partições, carrega tudo e filtra.
+    public synchronized List<Consulta> carregarPeriodo(LocalDateTime inicio, LocalDateTime fim) throws IOException {
+        sincronizarComFila();
+        if (!ParticoesConsultas.habilitado() || assinaturaAtual().equals(assinaturaCarregada)) {
+            return filtrarPeriodo(carregarTodos(), inicio, fim);
+        }
+
+        Map<String, Consulta> porId = new LinkedHashMap<>();
+        YearMonth de  = (inicio == null) ? null : YearMonth.from(inicio);
+        YearMonth ate = (fim == null)    ? null : YearMonth.from(fim);
+        for (Consulta c : particoes.carregar(de, ate, this::converterSnapshot)) porId.put(c.getId(), c);
+        for (Consulta c : CSVUtil.lerRegistros(caminhoArquivo, "id;", this::converterSnapshot)) porId.put(c.getId(), c);
+        reaplicarJournal(porId, inicio, fim, null);
+
+        // carga parcial: NÃO substitui o identity map (ele representa o conjunto inteiro)
+        return filtrarPeriodo(porId.values(), inicio, fim);
+    }
+
+    private static List<Consulta> filtrarPeriodo(Collection<Consulta> consultas, LocalDateTime inicio, LocalDateTime fim) {
+        List<Consulta> lista = new ArrayList<>();
         for (Consulta c : consultas) {
-            linhas.add(CSVUtil.juntarCampos(List.of(
-                c.getId(),
-                c.getPaciente().getCpf(),
-                c.getMedico().getCrm(),
-                c.getDataHora().toString(),
-                c.getLocal(),
-                c.getStatus().name(),
-                c.getDiagnostico() == null ? "" : c.getDiagnostico(),
-                c.getPrescricao()  == null ? "" : c.getPrescricao(),
-                String.valueOf(c.getPrecoFinal())
-            )));
+            if (inicio != null && c.getDataHora().isBefore(inicio)) continue;
+            if (fim != null && !c.getDataHora().isBefore(fim)) continue;
+            lista.add(c);
+        }
+        return lista;
+    }
+
+    // eventos ainda na fila precisam estar no arquivo antes de ler
+    private void sincronizarComFila() throws IOException {
+        gravacao.esvaziar(caminhoJournal);
+        if (escritaPropriaPendente) {
+            marcarEmDia();
+            escritaPropriaPendente = false;
         }
-        CSVUtil.escreverLinhas(caminhoArquivo, linhas);
-    }
-
-    // CARREGAR: lê do CSV e reconstrói objetos Consulta
-    // Observação: para simplificar, ignoramos o "id" salvo e
-    // criamos a Consulta com um novo id. Mantemos o STATUS chamando
-    // concluir()/cancelar() conforme o arquivo.
-    public List<Consulta> carregarTodos() throws IOException {
-        List<String> linhas = CSVUtil.lerLinhas(caminhoArquivo);
-        List<Consulta> resultado = new ArrayList<>();
-        if (linhas.isEmpty()) return resultado;
-
-        int i = linhas.get(0).startsWith("id;") ? 1 : 0;
-        for (; i < linhas.size(); i++) {
-            String linha = linhas.get(i).trim();
-            if (linha.isEmpty()) continue;
-
-            List<String> cols = CSVUtil.dividirLinha(linha);
-            if (cols.size() < 9) continue; // precisa ter todas as 9 colunas
-
-            // String idIgnorado = cols.get(0);          // vamos ignorar o id salvo
-            String cpf = cols.get(1);
-            String crm = cols.get(2);
-            String dataHoraIso = cols.get(3);
-            String local = cols.get(4);
-            String statusTxt = cols.get(5);
-            String diag = cols.get(6);
-            String presc = cols.get(7);
-            String precoTxt = cols.get(8);
-
-            // buscar paciente / médico
-            Optional<Paciente> op = pacienteRepo.buscarPorCpf(cpf);
-            Optional<Medico>   om = medicoRepo.buscarPorCrm(crm);
-            if (op.isEmpty() || om.isEmpty()) {
-                // se não achar paciente/médico, pula a linha (evita NPE)
-                continue;
+    }
+
+    // Reaplica o journal em 'porId'. AGENDADA fora de [inicio, fim) é ignorada;
+    // CONCLUIDA/CANCELADA só valem para ids presentes. Devolve quantos eventos foram lidos.
+    private int reaplicarJournal(Map<String, Consulta> porId, LocalDateTime inicio, LocalDateTime fim,
+                                 List<Consulta> afetadas) throws IOException {
+        int[] lidos = {0}; // contador mutável dentro do lambda
+        CSVUtil.percorrerRegistros(caminhoJournal, null, visitanteDoJournal(porId, inicio, fim, lidos, afetadas));
+        return lidos[0];
+    }
+
+    // Aplica UM evento do journal; usado tanto na leitura completa quanto na incremental.
+    // Se 'afetadas' não for null, recebe cada consulta criada ou alterada.
+    private java.util.function.Consumer<LinhaCSV> visitanteDoJournal(Map<String, Consulta> porId,
+                                                                    LocalDateTime inicio, LocalDateTime fim,
+                                                                    int[] lidos, List<Consulta> afetadas) {
+        return linha -> {
+            lidos[0]++;
+            if (linha.tamanho() < 2) return;
+            String id = linha.campo(1);
+
+            if (linha.campoIgual(0, StatusConsulta.AGENDADA.name())) {
+                if (linha.tamanho() < 7 || porId.containsKey(id)) return; // já está no snapshot
+                Consulta c = montar(id, linha, 2, 6);
+                if (c == null) return;
+                if (inicio != null && c.getDataHora().isBefore(inicio)) return;
+                if (fim != null && !c.getDataHora().isBefore(fim)) return;
+                porId.put(id, c);
+                if (afetadas != null) afetadas.add(c);
+            } else {
+                Consulta c = porId.get(id);
+                if (c == null) return; // evento de consulta desconhecida (ou fora do período): ignora
+                aplicarStatus(c, linha, 0, 2);
+                if (afetadas != null) afetadas.add(c);
             }
+        };
+    }
+
+    private String assinaturaAtual() throws IOException {
+        return assinaturaSnapshot() + "#" + CSVUtil.assinatura(caminhoJournal);
+    }
 
-            LocalDateTime dh;
-            try { dh = LocalDateTime.parse(dataHoraIso); }
-            catch (Exception e) { continue; }
+    // Só os arquivos do snapshot (CSV e, se ligadas, as partições por mês)
+    private String assinaturaSnapshot() throws IOException {
+        if (!ParticoesConsultas.habilitado()) return CSVUtil.assinatura(caminhoArquivo);
 
-            double preco;
-            try { preco = Double.parseDouble(precoTxt.replace(',', '.')); }
-            catch (Exception e) { continue; }
+        List<String> arquivos = new ArrayList<>(List.of(caminhoArquivo));
+        arquivos.addAll(particoes.arquivos());
+        return CSVUtil.assinatura(arquivos.toArray(new String[0]));
+    }
 
-            // cria consulta AGENDADA
-            Consulta c = new Consulta(op.get(), om.get(), dh, local, preco);
+    // Depois de uma escrita NOSSA com o cache em dia: memória e arquivos batem de novo
+    private void marcarEmDia() throws IOException {
+        marcaJournal = MarcaDeLeitura.de(caminhoJournal);
+        assinaturaSnapshotCarregada = assinaturaSnapshot();
+        assinaturaCarregada = assinaturaAtual();
+    }
 
-            // ajusta status conforme CSV
-            StatusConsulta st;
-            try { st = StatusConsulta.fromString(statusTxt); }
-            catch (Exception e) { st = StatusConsulta.AGENDADA; }
+    private boolean assinaturaEmDia() throws IOException {
+        return assinaturaCarregada != null && assinaturaCarregada.equals(assinaturaAtual());
+    }
+
+    // Snapshot: meses particionados (se ligado) + CSV; ou o .bin se estiver ligado e for mais novo que o CSV
+    private List<Consulta> carregarSnapshot() throws IOException {
+        if (ParticoesConsultas.habilitado()) {
+            List<Consulta> lidas = particoes.carregar(null, null, this::converterSnapshot);
+            particoes.lembrar(lidas, ConsultaRepo::linhaSnapshot); // base para saber quais meses mudaram
+            // consultas.csv antigo (antes de ligar as partições): entra até a próxima compactação
+            lidas.addAll(CSVUtil.lerRegistros(caminhoArquivo, "id;", this::converterSnapshot));
+            return lidas;
+        }
 
-            if (st == StatusConsulta.CONCLUIDA) {
-                c.concluir(diag, presc);
-            } else if (st == StatusConsulta.CANCELADA) {
-                c.cancelar();
+        if (SnapshotBinario.habilitado() && SnapshotBinario.maisNovoQue(caminhoBinario, caminhoArquivo)) {
+            try {
+                return SnapshotBinario.carregarConsultas(caminhoBinario,
+                        pacienteRepo::buscarPorCpf, medicoRepo::buscarPorCrm, identidade::get, textos::de);
+            } catch (IOException e) {
+                // .bin corrompido/antigo: cai para o CSV, que é a fonte oficial
             }
-            // (Se st == AGENDADA, deixa como está)
+        }
+
+        // CSV em streaming; em arquivos grandes, pedaços convertidos em paralelo.
+        List<Consulta> lidas = CSVUtil.lerRegistros(caminhoArquivo, "id;", this::converterSnapshot);
+
+        // deixa a cópia binária pronta para a próxima leitura (se não der, só avisa: a carga já terminou)
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarConsultas(caminhoBinario, lidas);
+        return lidas;
+    }
+
+    // Uma linha do snapshot -> Consulta (ou null se inválida).
+    // montar/aplicarStatus só leem os repositórios e criam objetos, então são seguros em paralelo.
+    private Consulta converterSnapshot(LinhaCSV linha) {
+        if (linha.tamanho() < 9) return null; // precisa ter todas as 9 colunas
+
+        Consulta c = montar(linha.campo(0), linha, 1, 8);
+        if (c != null) aplicarStatus(c, linha, 5, 6);
+        return c;
+    }
+
+    // Cria a consulta (AGENDADA) a partir da linha; devolve null se a linha for inválida.
+    // Colunas a partir de 'colCpf': cpf, crm, dataHora, local (em sequência); o preço fica em 'colPreco'.
+    // Data e preço são lidos direto do buffer da linha (sem String intermediária).
+    // Se o id já estiver no identity map, devolve a instância existente (campos fixos não mudam).
+    private Consulta montar(String id, LinhaCSV linha, int colCpf, int colPreco) {
+        Consulta existente = identidade.get(id);
+        if (existente != null) return existente;
+
+        // buscar paciente / médico
+        Optional<Paciente> op = pacienteRepo.buscarPorCpf(linha.campo(colCpf));
+        Optional<Medico>   om = medicoRepo.buscarPorCrm(linha.campo(colCpf + 1));
+        if (op.isEmpty() || om.isEmpty()) {
+            // se não achar paciente/médico, pula a linha (evita NPE)
+            return null;
+        }
+
+        LocalDateTime dh;
+        try { dh = linha.campoDataHora(colCpf + 2); }
+        catch (Exception e) { return null; }
+
+        double preco;
+        try { preco = linha.campoDouble(colPreco); }
+        catch (Exception e) { return null; }
+
+        try { return new Consulta(id, op.get(), om.get(), dh, linha.campo(colCpf + 3, textos), preco); }
+        catch (IllegalArgumentException e) { return null; }
+    }
+
+    // Ajusta o status conforme o texto salvo (só transições válidas; repetidas são ignoradas).
+    // Diagnóstico e prescrição (colDiag, colDiag+1) só viram String se a consulta for concluída.
+    private void aplicarStatus(Consulta c, LinhaCSV linha, int colStatus, int colDiag) {
+        if (c.getStatus() != StatusConsulta.AGENDADA) return; // já concluída/cancelada
+
+        StatusConsulta st;
+        if (linha.campoIgual(colStatus, "AGENDADA"))       st = StatusConsulta.AGENDADA;  // casos comuns:
+        else if (linha.campoIgual(colStatus, "CONCLUIDA")) st = StatusConsulta.CONCLUIDA; // sem criar String
+        else if (linha.campoIgual(colStatus, "CANCELADA")) st = StatusConsulta.CANCELADA;
+        else {
+            try { st = StatusConsulta.fromString(linha.campo(colStatus)); }
+            catch (Exception e) { st = StatusConsulta.AGENDADA; }
+        }
 
-            resultado.add(c);
+        if (st == StatusConsulta.CONCLUIDA) {
+            c.concluir(linha.campoOuVazio(colDiag, textos), linha.campoOuVazio(colDiag + 1, textos));
+        } else if (st == StatusConsulta.CANCELADA) {
+            c.cancelar();
         }
-        return resultado;
+        // (Se st == AGENDADA, deixa como está)
     }
 }
@@ -0,0 +1,109 @@
+// ContadoresConcluidas.java — quantas consultas CONCLUÍDAS cada médico e cada especialidade têm,
+// mantido a cada evento (em vez de agrupar o histórico inteiro a cada relatório).
+
+package repo;
+
+import model.*;
+
+import java.util.*;
+
+/**
+ * ContadoresConcluidas
+ *
+ * registrar(c) olha o status ATUAL da consulta:
+ * - ficou CONCLUIDA e ainda não foi contada -> soma 1 no médico e na especialidade;
+ * - foi contada mas não está mais CONCLUIDA (ex.: recarga achou outro status) -> desfaz a soma.
+ * Cada consulta contada lembra em qual médico/especialidade entrou, para desfazer no lugar certo
+ * mesmo que o médico mude de especialidade depois.
+ *
+ * O líder (maior contagem) fica guardado: soma só compara com ele (O(1)); se o líder
+ * perder uma consulta, ele é recalculado na próxima consulta ao líder.
+ * Usado só pelo ConsultaRepo, sempre com a trava do repositório.
+ */
+final class ContadoresConcluidas {
+
+    // onde cada consulta concluída foi contada
+    private record Contada(Medico medico, Especialidade especialidade) {}
+
+    private final Map<String, Contada> contadas = new HashMap<>();
+    private final Map<Medico, Long> porMedico = new IdentityHashMap<>();
+    private final long[] porEspecialidade = new long[Especialidade.values().length];
+
+    private Medico medicoLider;              // null = ninguém concluiu nada
+    private boolean liderMedicoValido = true;
+    private Especialidade especialidadeLider;
+    private boolean liderEspecialidadeValido = true;
+
+    ContadoresConcluidas(Collection<Consulta> todas) {
+        for (Consulta c : todas) registrar(c);
+    }
+
+    void registrar(Consulta c) {
+        boolean concluida = c.getStatus() == StatusConsulta.CONCLUIDA;
+        Contada antes = contadas.get(c.getId());
+        if (concluida && antes == null) {
+            Contada nova = new Contada(c.getMedico(), c.getMedico().getEspecialidade());
+            contadas.put(c.getId(), nova);
+            somar(nova, +1);
+        } else if (!concluida && antes != null) {
+            contadas.remove(c.getId());
+            somar(antes, -1);
+        }
+    }
+
+    // Médico com mais concluídas (em caso de empate, um dos empatados)
+    Optional<Medico> medicoLider() {
+        if (!liderMedicoValido) {
+            medicoLider = null;
+            for (Map.Entry<Medico, Long> e : porMedico.entrySet()) {
+                if (medicoLider == null || e.getValue() > porMedico.get(medicoLider)) medicoLider = e.getKey();
+            }
+            liderMedicoValido = true;
+        }
+        return Optional.ofNullable(medicoLider);
+    }
+
+    Optional<Especialidade> especialidadeLider() {
+        if (!liderEspecialidadeValido) {
+            especialidadeLider = null;
+            for (Especialidade e : Especialidade.values()) {
+                long q = porEspecialidade[e.ordinal()];
+                if (q > 0 && (especialidadeLider == null || q > porEspecialidade[especialidadeLider.ordinal()])) {
+                    especialidadeLider = e;
+                }
+            }
+            liderEspecialidadeValido = true;
+        }
+        return Optional.ofNullable(especialidadeLider);
+    }
+
+    long doMedico(Medico m) {
+        return porMedico.getOrDefault(m, 0L);
+    }
+
+    long daEspecialidade(Especialidade e) {
+        return porEspecialidade[e.ordinal()];
+    }
+
+    private void somar(Contada c, int delta) {
+        long qm = porMedico.getOrDefault(c.medico(), 0L) + delta;
+        if (qm == 0) porMedico.remove(c.medico());
+        else porMedico.put(c.medico(), qm);
+
+        int e = c.especialidade().ordinal();
+        porEspecialidade[e] += delta;
+
+        if (delta > 0) {
+            // só quem ganhou pode passar o líder
+            if (liderMedicoValido && (medicoLider == null || qm > doMedico(medicoLider))) medicoLider = c.medico();
+            if (liderEspecialidadeValido && (especialidadeLider == null
+                    || porEspecialidade[e] > porEspecialidade[especialidadeLider.ordinal()])) {
+                especialidadeLider = c.especialidade();
+            }
+        } else {
+            // o líder perdeu uma: outro pode ter empatado/passado
+            if (c.medico() == medicoLider) liderMedicoValido = false;
+            if (c.especialidade() == especialidadeLider) liderEspecialidadeValido = false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+// DicionarioStrings.java — dicionário LIMITADO de textos repetidos, usado na carga dos CSVs.
+// Campos como local ("Sala 3"), quarto e diagnósticos comuns se repetem em milhares de linhas;
+// com o dicionário, linhas com o mesmo texto passam a apontar para a MESMA String.
+
+package repo;
+
+/**
+ * DicionarioStrings
+ *
+ * Tabela de tamanho fixo (potência de 2), endereçada pelo hash do texto:
+ * - achou o mesmo texto na posição -> devolve a String que já existe (nada é alocado);
+ * - posição vazia ou com outro texto -> cria a String e ela passa a ocupar a posição.
+ * Não cresce nunca: um texto raro só "expulsa" outro da mesma posição (pior caso = sem
+ * compartilhamento, nunca erro). Textos longos (> TAMANHO_MAXIMO) nem entram.
+ *
+ * Sem trava de propósito: a carga pode usar várias threads (CSVUtil.lerRegistros) e uma
+ * corrida só faz perder uma inserção. Como String é imutável, ler a referência de outra
+ * thread é seguro.
+ */
+final class DicionarioStrings {
+
+    static final int TAMANHO_MAXIMO = 128; // caracteres; acima disso quase nunca se repete
+
+    private final String[] tabela;
+    private final int mascara;
+
+    DicionarioStrings(int capacidade) {
+        if (capacidade <= 0) throw new IllegalArgumentException("Capacidade inválida: " + capacidade);
+        int n = Integer.highestOneBit(capacidade);
+        if (n < capacidade) n <<= 1;   // arredonda para potência de 2
+        tabela = new String[n];
+        mascara = n - 1;
+    }
+
+    // Texto em buf[ini, fim): devolve a instância compartilhada (ou uma nova, se não estiver lá)
+    String de(char[] buf, int ini, int fim) {
+        int n = fim - ini;
+        if (n == 0) return "";
+        if (n > TAMANHO_MAXIMO) return new String(buf, ini, n);
+
+        int h = 0;
+        for (int k = ini; k < fim; k++) h = 31 * h + buf[k]; // mesmo cálculo do String.hashCode
+        int pos = (h ^ (h >>> 16)) & mascara;
+
+        String atual = tabela[pos];
+        if (atual != null && atual.hashCode() == h && atual.length() == n && iguais(atual, buf, ini)) return atual;
+
+        String novo = new String(buf, ini, n);
+        tabela[pos] = novo;
+        return novo;
+    }
+
+    // Mesma ideia para um texto que já veio pronto (ex.: lido do snapshot binário)
+    String de(String texto) {
+        if (texto.isEmpty()) return "";
+        if (texto.length() > TAMANHO_MAXIMO) return texto;
+
+        int h = texto.hashCode();
+        int pos = (h ^ (h >>> 16)) & mascara;
+        String atual = tabela[pos];
+        if (texto.equals(atual)) return atual;
+        tabela[pos] = texto;
+        return texto;
+    }
+
+    private static boolean iguais(String s, char[] buf, int ini) {
+        for (int k = 0; k < s.length(); k++) {
+            if (s.charAt(k) != buf[ini + k]) return false;
+        }
+        return true;
+    }
+}
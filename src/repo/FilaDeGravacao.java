@@ -0,0 +1,286 @@
+// FilaDeGravacao.java — estágio de gravação em disco compartilhado pelos repositórios.
+// Em vez de cada operação escrever no arquivo na thread de quem chamou, os pedidos
+// podem ir para uma fila atendida por UMA thread escritora, que junta tudo o que
+// chegou no intervalo numa escrita só por arquivo (group commit).
+
+package repo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FilaDeGravacao
+ *
+ * Modos de durabilidade (propriedade -Dhospital.durabilidade, padrão SINCRONO):
+ * - SINCRONO:  quem chama grava na hora, na própria thread. Sem fsync, como sempre foi
+ *              (o dado fica no cache do sistema); -Dhospital.fsync=true liga o fsync.
+ *              Cada arquivo tem a sua trava: gravações em arquivos diferentes não esperam umas pelas outras;
+ * - GRUPO:     quem chama entra na fila e ESPERA o próximo lote ser gravado com fsync.
+ *              Enquanto um lote está no disco, os pedidos seguintes se acumulam e vão
+ *              juntos no lote seguinte: um fsync serve para muitas operações;
+ * - PERIODICO: quem chama entra na fila e volta na hora; a thread escritora grava a cada
+ *              -Dhospital.intervaloGravacaoMs (padrão 10 ms). Uma queda pode perder o último intervalo.
+ *
+ * Pedidos para o MESMO arquivo são combinados:
+ * - acrescentar(): as linhas se juntam numa escrita só (na ordem de chegada);
+ * - substituir():  só o conteúdo mais novo é gravado (os anteriores já estão contidos nele).
+ *
+ * Quem lê um arquivo gravado por aqui deve chamar esvaziar(caminho) antes, para não ler uma versão velha.
+ *
+ * Um erro de gravação vai para quem pediu a gravação DAQUELE arquivo, nunca para quem grava outro:
+ * no GRUPO, quem espera por ele; no PERIODICO (quem pediu já voltou), o próximo pedido ou
+ * esvaziar(caminho) do mesmo arquivo. Os arquivos são identificados pelo caminho normalizado.
+ * Se a thread escritora for interrompida, o lote em aberto falha como um erro de gravação
+ * e o próximo pedido inicia outra thread.
+ */
+public final class FilaDeGravacao {
+
+    public enum Durabilidade { SINCRONO, GRUPO, PERIODICO }
+
+    private static volatile FilaDeGravacao padrao;
+
+    private final Durabilidade modo;
+    private final long intervaloMs;
+    private final boolean fsync;   // GRUPO/PERIODICO sempre; SINCRONO só com -Dhospital.fsync=true
+
+    // SINCRONO: uma trava por arquivo (caminho normalizado), em vez da trava da fila inteira
+    private final Map<Path, Object> travasPorArquivo = new ConcurrentHashMap<>();
+
+    // ---- estado protegido por 'this' ----
+    private Map<Path, Pendencia> pendentes = new LinkedHashMap<>();         // arquivo -> o que falta gravar
+    private CompletableFuture<Void> loteAtual = new CompletableFuture<>();  // concluído quando 'pendentes' for processado
+    private CompletableFuture<Void> emGravacao = CompletableFuture.completedFuture(null);
+    private final Map<Path, IOException> errosNaoAvisados = new HashMap<>(); // PERIODICO: erro de cada arquivo, até alguém pedir de novo
+    private boolean pressa;               // esvaziar() pediu para gravar sem esperar o intervalo
+    private Thread escritor;              // null = nenhuma thread escritora rodando
+    private boolean ganchoInstalado;      // shutdown hook que esvazia a fila (um só)
+
+    // o que falta gravar em UM arquivo
+    private static final class Pendencia {
+        List<String> conteudoNovo;                      // != null: reescrever o arquivo inteiro com isto
+        final List<String> acrescimos = new ArrayList<>(); // depois, acrescentar estas linhas
+        final CompletableFuture<Void> gravada = new CompletableFuture<>(); // resultado SÓ deste arquivo
+    }
+
+    public FilaDeGravacao(Durabilidade modo, long intervaloMs) {
+        if (modo == null) throw new IllegalArgumentException("Modo de durabilidade nulo");
+        if (intervaloMs < 0) throw new IllegalArgumentException("Intervalo negativo");
+        this.modo = modo;
+        this.intervaloMs = intervaloMs;
+        this.fsync = (modo != Durabilidade.SINCRONO) || Boolean.getBoolean("hospital.fsync");
+    }
+
+    // Instância única usada pelos repositórios (uma thread escritora para o programa todo)
+    public static FilaDeGravacao padrao() {
+        FilaDeGravacao f = padrao;
+        if (f == null) {
+            synchronized (FilaDeGravacao.class) {
+                f = padrao;
+                if (f == null) {
+                    String nome = System.getProperty("hospital.durabilidade", "SINCRONO");
+                    Durabilidade modo = Durabilidade.valueOf(nome.trim().toUpperCase(Locale.ROOT));
+                    f = padrao = new FilaDeGravacao(modo, Long.getLong("hospital.intervaloGravacaoMs", 10L));
+                }
+            }
+        }
+        return f;
+    }
+
+    public Durabilidade getModo() { return modo; }
+
+    // true se, quando acrescentar()/substituir() voltam, o arquivo já foi gravado
+    public boolean gravaNaHora() { return modo != Durabilidade.PERIODICO; }
+
+    // Acrescenta linhas no final do arquivo
+    public void acrescentar(String caminho, List<String> linhas) throws IOException {
+        if (linhas.isEmpty()) return;
+        pedir(caminho, p -> p.acrescimos.addAll(linhas));
+    }
+
+    // Troca o conteúdo inteiro do arquivo
+    public void substituir(String caminho, List<String> linhas) throws IOException {
+        List<String> copia = List.copyOf(linhas);
+        pedir(caminho, p -> { p.conteudoNovo = copia; p.acrescimos.clear(); });
+    }
+
+    // Espera tudo o que já foi pedido chegar ao disco e avisa erro ainda não entregue de QUALQUER
+    // arquivo (usado ao encerrar o programa)
+    public void esvaziar() throws IOException {
+        aguardarFila();
+        synchronized (this) {
+            Iterator<IOException> erros = errosNaoAvisados.values().iterator();
+            if (erros.hasNext()) {
+                IOException e = erros.next();
+                errosNaoAvisados.clear();
+                throw e;
+            }
+        }
+    }
+
+    // Espera tudo o que já foi pedido chegar ao disco antes de ler 'caminho';
+    // só avisa erro da gravação DESTE arquivo (o de outros arquivos fica para quem os grava)
+    public void esvaziar(String caminho) throws IOException {
+        aguardarFila();
+        synchronized (this) { avisarErroPendente(normalizar(caminho)); }
+    }
+
+    private void aguardarFila() throws IOException {
+        CompletableFuture<Void> alvo;
+        synchronized (this) {
+            if (pendentes.isEmpty()) {
+                alvo = emGravacao;
+            } else {
+                alvo = loteAtual;
+                pressa = true; // não espera o intervalo: grava já
+                notifyAll();
+            }
+        }
+        aguardar(alvo);
+    }
+
+    private static Path normalizar(String caminho) {
+        return Paths.get(caminho).toAbsolutePath().normalize();
+    }
+
+    private void pedir(String caminho, java.util.function.Consumer<Pendencia> alteracao) throws IOException {
+        Path path = normalizar(caminho); // "data/x.csv" e "./data/x.csv" são o mesmo arquivo
+        if (modo == Durabilidade.SINCRONO) {
+            // na thread de quem chamou; só quem grava o MESMO arquivo espera
+            Pendencia p = new Pendencia();
+            alteracao.accept(p);
+            synchronized (travasPorArquivo.computeIfAbsent(path, k -> new Object())) {
+                gravar(path, p, fsync);
+            }
+            return;
+        }
+
+        CompletableFuture<Void> alvo;
+        synchronized (this) {
+            avisarErroPendente(path);
+
+            Pendencia p = pendentes.computeIfAbsent(path, k -> new Pendencia());
+            alteracao.accept(p);
+            alvo = p.gravada;
+            if (escritor == null) iniciarEscritor();
+            notifyAll();
+        }
+        if (modo == Durabilidade.GRUPO) aguardar(alvo);
+    }
+
+    // PERIODICO: erro de uma gravação anterior deste arquivo, que ninguém ficou esperando
+    private void avisarErroPendente(Path path) throws IOException {
+        IOException e = errosNaoAvisados.remove(path);
+        if (e != null) throw e;
+    }
+
+    private static void aguardar(CompletableFuture<Void> alvo) throws IOException {
+        try {
+            alvo.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            throw e;
+        }
+    }
+
+    // ---- thread escritora ----
+
+    private void iniciarEscritor() {
+        escritor = new Thread(this::laco, "gravador-hospital");
+        escritor.setDaemon(true);
+        escritor.start();
+
+        // ao encerrar o programa, grava o que ainda estiver na fila
+        if (ganchoInstalado) return;
+        ganchoInstalado = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try { esvaziar(); }
+            catch (IOException e) { System.err.println("Erro gravando dados pendentes: " + e.getMessage()); }
+        }));
+    }
+
+    private void laco() {
+        while (true) {
+            Map<Path, Pendencia> lote;
+            CompletableFuture<Void> aviso;
+            synchronized (this) {
+                try {
+                    while (pendentes.isEmpty()) wait();
+                    // PERIODICO: deixa acumular por um intervalo (só esvaziar() encurta a espera)
+                    if (modo == Durabilidade.PERIODICO) {
+                        long limite = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+                        long resta;
+                        while (!pressa && (resta = limite - System.nanoTime()) > 0) {
+                            TimeUnit.NANOSECONDS.timedWait(this, resta);
+                        }
+                    }
+                    pressa = false;
+                } catch (InterruptedException e) {
+                    // ninguém mais vai gravar este lote: cada arquivo pendente falha como um erro de
+                    // gravação (GRUPO/esvaziar não travam) e o próximo pedido inicia outra thread
+                    for (Map.Entry<Path, Pendencia> p : pendentes.entrySet()) {
+                        falhou(p.getKey(), p.getValue(), new IOException(
+                                "Thread de gravação interrompida; dados não gravados: " + p.getKey()));
+                    }
+                    loteAtual.complete(null);
+                    pendentes = new LinkedHashMap<>();
+                    loteAtual = new CompletableFuture<>();
+                    escritor = null;
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                lote = pendentes;
+                aviso = loteAtual;
+                pendentes = new LinkedHashMap<>();
+                loteAtual = new CompletableFuture<>();
+                emGravacao = aviso;
+            }
+
+            // grava FORA da trava: enquanto isso, novos pedidos vão para o próximo lote.
+            // Cada arquivo tem o seu resultado: a falha de um não chega a quem gravou outro.
+            for (Map.Entry<Path, Pendencia> e : lote.entrySet()) {
+                try {
+                    gravar(e.getKey(), e.getValue(), fsync);
+                    e.getValue().gravada.complete(null);
+                } catch (IOException ex) {
+                    synchronized (this) { falhou(e.getKey(), e.getValue(), ex); }
+                }
+            }
+            aviso.complete(null); // lote processado (esvaziar() só espera; os erros ficam por arquivo)
+        }
+    }
+
+    // Entrega o erro a quem pediu a gravação deste arquivo: quem espera (GRUPO) ou,
+    // no PERIODICO, o próximo pedido/esvaziar(caminho) do mesmo arquivo
+    private void falhou(Path path, Pendencia p, IOException erro) {
+        p.gravada.completeExceptionally(erro);
+        if (modo == Durabilidade.PERIODICO) errosNaoAvisados.put(path, erro);
+    }
+
+    // Uma escrita (e, se ligado, um fsync) por arquivo
+    private static void gravar(Path path, Pendencia p, boolean fsync) throws IOException {
+        Path parent = path.getParent();
+        if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
+
+        StringBuilder sb = new StringBuilder();
+        String fimDeLinha = System.lineSeparator();
+        if (p.conteudoNovo != null) for (String l : p.conteudoNovo) sb.append(l).append(fimDeLinha);
+        for (String l : p.acrescimos) sb.append(l).append(fimDeLinha);
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(sb.toString());
+
+        OpenOption modoAbertura = (p.conteudoNovo != null)
+                ? StandardOpenOption.TRUNCATE_EXISTING
+                : StandardOpenOption.APPEND;
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, modoAbertura)) {
+            while (bytes.hasRemaining()) ch.write(bytes);
+            if (fsync) ch.force(false); // só volta quando estiver no disco
+        }
+    }
+}
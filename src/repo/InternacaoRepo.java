@@ -1,19 +1,76 @@
 package repo;
 
 import model.Internacao;
+import model.Medico;
+import model.Paciente;
 import java.util.*;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 public class InternacaoRepo {
 
     private final String caminhoArquivo;
+    private final PacienteRepo pacienteRepo;  // para achar o Paciente pelo CPF salvo
+    private final MedicoRepo   medicoRepo;    // para achar o Médico pelo CRM salvo
 
-    public InternacaoRepo(String caminhoArquivo) {
+    // Identity map: uma instância por id, compartilhada entre InternacaoService e relatórios
+    private Map<String, Internacao> identidade = new LinkedHashMap<>();
+    private String assinaturaCarregada = null; // tamanho/data do CSV na última carga/gravação
+    private boolean escritaPropriaPendente = false; // gravação nossa ainda na fila (modo PERIODICO)
+    private final DicionarioStrings textos = new DicionarioStrings(1024); // quartos repetidos viram a mesma String
+    private TotaisFinanceiros totais = null;        // receita/economia das altas por dia e mês (montado na 1ª consulta)
+    // acompanham o identity map (mesmas atualizações que os totais): relatórios de "internados agora"
+    // e de histórico do paciente vão direto ao balde, sem percorrer todas as internações
+    private Map<String, Internacao> ativas = new LinkedHashMap<>();               // sem alta, por id
+    private Map<Paciente, Map<String, Internacao>> porPaciente = new HashMap<>(); // Paciente não redefine equals: identidade
+
+    // gravações passam pela fila compartilhada: várias altas/internações seguidas
+    // viram UMA reescrita do CSV por lote (só a versão mais nova é gravada)
+    private final FilaDeGravacao gravacao = FilaDeGravacao.padrao();
+
+    public InternacaoRepo(String caminhoArquivo, PacienteRepo pacRepo, MedicoRepo medRepo) {
         this.caminhoArquivo = caminhoArquivo;   
+        this.pacienteRepo   = pacRepo;
+        this.medicoRepo     = medRepo;
     }
 
     
+    // Sem saber o que mudou: a lista inteira vira o identity map e os totais conferem todas
     public void salvarTodos(List<Internacao> internacoes) throws IOException {
+        gravarCsv(internacoes);
+
+        // o arquivo agora é (ou logo será) exatamente a lista recebida: ela vira o identity map
+        Map<String, Internacao> porId = new LinkedHashMap<>();
+        for (Internacao i : internacoes) porId.put(i.getId(), i);
+        identidade = porId;
+        reindexar();
+        atualizarTotais();
+        depoisDeGravar();
+    }
+
+    // Mesmo que o de cima, mas quem chama diz o que mudou desde a última gravação
+    // (internada/alta = 'alteradas', cancelada = 'removidas'): o identity map e os totais
+    // só mexem nesses ids, em vez de percorrer todas as internações a cada alta.
+    public void salvarTodos(List<Internacao> internacoes, Collection<Internacao> alteradas,
+                            Collection<String> removidas) throws IOException {
+        gravarCsv(internacoes);
+
+        for (String id : removidas) {
+            Internacao antiga = identidade.remove(id);
+            if (antiga != null) desindexar(antiga);
+            if (totais != null) totais.remover(id);
+        }
+        for (Internacao i : alteradas) {
+            Internacao antiga = identidade.put(i.getId(), i);
+            if (antiga != null) desindexar(antiga);
+            indexar(i);
+            if (totais != null) totais.registrarInternacao(i);
+        }
+        depoisDeGravar();
+    }
+
+    private void gravarCsv(List<Internacao> internacoes) throws IOException {
         List<String> linhas = new ArrayList<>();
         linhas.add("id;cpfPaciente;crmMedico;quarto;entradaISO;saidaISO;custoBaseDia;custoTotal"); 
 
@@ -34,7 +91,15 @@ public class InternacaoRepo {
             linhas.add(linha);
         }
 
-        CSVUtil.escreverLinhas(caminhoArquivo, linhas); // CSVUtil está no mesmo package repo; não precisa importar.
+        gravacao.substituir(caminhoArquivo, linhas);
+    }
+
+    private void depoisDeGravar() throws IOException {
+        if (gravacao.gravaNaHora()) {
+            marcarEmDia();
+        } else {
+            escritaPropriaPendente = true; // assinatura é lida depois que a fila gravar
+        }
     }
 
     // Top 1 médico por nº de consultas CONCLUÍDAS.
@@ -49,10 +114,137 @@ public class InternacaoRepo {
     public static record TopMedico(String crm, String nome, long quantidade) {}
 
 
-    // TODO: carregar do CSV de verdade.
-    // Por enquanto devolvemos lista vazia só p/ RelatorioService compilar.
-    public List<Internacao> carregarTodos() {
-        return new ArrayList<>();
+    // CARREGAR: lê do CSV e reconstrói as internações (mantendo id e saída salvos).
+    // Formato: id;cpfPaciente;crmMedico;quarto;entradaISO;saidaISO;custoBaseDia;custoTotal
+    // (custoTotal é só informativo: é recalculado pelo modelo)
+    // Se o arquivo não mudou desde a última carga/gravação, devolve as mesmas instâncias;
+    // se mudou, relê reaproveitando a instância já existente de cada id.
+    public List<Internacao> carregarTodos() throws IOException {
+        List<Internacao> lidas = recarregarSeMudou();
+        return (lidas != null) ? lidas : new ArrayList<>(identidade.values());
+    }
+
+    // Internações ainda sem alta (na ordem do arquivo)
+    public List<Internacao> listarAtivas() throws IOException {
+        recarregarSeMudou();
+        return new ArrayList<>(ativas.values());
+    }
+
+    // Internações do paciente deste CPF (com e sem alta, na ordem do arquivo); vazia se o CPF não existe
+    public List<Internacao> listarDoPaciente(String cpf) throws IOException {
+        recarregarSeMudou();
+        Paciente p = pacienteRepo.buscarPorCpf(cpf).orElse(null);
+        Map<String, Internacao> doPaciente = (p == null) ? null : porPaciente.get(p);
+        return (doPaciente == null) ? new ArrayList<>() : new ArrayList<>(doPaciente.values());
+    }
+
+    // Relê o arquivo se ele mudou desde a última carga/gravação: devolve o que foi lido,
+    // ou null se a memória já estava em dia
+    private List<Internacao> recarregarSeMudou() throws IOException {
+        gravacao.esvaziar(caminhoArquivo); // não ler uma versão velha enquanto a fila ainda não gravou
+        if (escritaPropriaPendente) {
+            marcarEmDia();
+            escritaPropriaPendente = false;
+        }
+
+        String assinatura = CSVUtil.assinatura(caminhoArquivo); // ANTES de ler
+        if (assinatura.equals(assinaturaCarregada)) return null;
+
+        // Mudou: relê o arquivo INTEIRO. Não dá para ler "só as linhas novas" como no journal
+        // de consultas: este CSV é sempre reescrito por completo (uma alta muda uma linha do
+        // meio), então ele pode crescer e terminar igual mesmo com linhas antigas diferentes.
+        // streaming; em arquivos grandes, pedaços convertidos em paralelo.
+        // Paciente/médico saem dos índices por CPF/CRM dos repositórios (O(1) por linha,
+        // só leitura, então é seguro entre threads)
+        Map<String, Internacao> anteriores = identidade;
+        List<Internacao> lidas = CSVUtil.lerRegistros(caminhoArquivo, "id;", linha -> converterLinha(linha, anteriores));
+
+        Map<String, Internacao> porId = new LinkedHashMap<>();
+        for (Internacao i : lidas) porId.put(i.getId(), i);
+        identidade = porId; // canceladas (que sumiram do arquivo) saem do identity map
+        reindexar();
+        atualizarTotais();
+        assinaturaCarregada = assinatura;
+        return lidas;
+    }
+
+    // Totais das altas entre as datas (inclusivas; null = sem limite), agrupados por dia,
+    // mês, médico ou plano. Responde com o que está em memória (sem reler o arquivo).
+    public SortedMap<String, TotaisFinanceiros.Totais> totais(LocalDate inicio, LocalDate fim,
+                                                            TotaisFinanceiros.Agrupamento por) throws IOException {
+        if (totais == null) {
+            if (assinaturaCarregada == null) carregarTodos(); // nunca carregou: lê uma vez
+            totais = new TotaisFinanceiros();
+            atualizarTotais();
+        }
+        return totais.somar(inicio, fim, por);
+    }
+
+    // Depois de uma carga completa (ou gravação sem saber o que mudou): cada internação recalcula
+    // a sua parte e as que sumiram (canceladas) saem dos totais. O(n): o caminho do dia a dia
+    // (salvarTodos com 'alteradas') mexe só nos ids que mudaram.
+    private void atualizarTotais() {
+        if (totais == null) return;
+        for (Internacao i : identidade.values()) totais.registrarInternacao(i);
+        List<String> sumiram = new ArrayList<>();
+        for (String id : totais.ids()) if (!identidade.containsKey(id)) sumiram.add(id);
+        for (String id : sumiram) totais.remover(id);
+    }
+
+    // Ativas/por paciente montados de novo a partir do identity map (depois de uma carga completa)
+    private void reindexar() {
+        ativas = new LinkedHashMap<>();
+        porPaciente = new HashMap<>();
+        for (Internacao i : identidade.values()) indexar(i);
+    }
+
+    private void indexar(Internacao i) {
+        if (i.getSaida() == null) ativas.put(i.getId(), i);
+        porPaciente.computeIfAbsent(i.getPaciente(), k -> new LinkedHashMap<>()).put(i.getId(), i);
+    }
+
+    // 'i' é a instância que estava no identity map (o paciente dela não muda; a alta pode ter mudado)
+    private void desindexar(Internacao i) {
+        ativas.remove(i.getId());
+        Map<String, Internacao> doPaciente = porPaciente.get(i.getPaciente());
+        if (doPaciente == null) return;
+        doPaciente.remove(i.getId());
+        if (doPaciente.isEmpty()) porPaciente.remove(i.getPaciente());
+    }
+
+    // Uma linha do CSV -> Internacao (ou null se inválida); reaproveita a instância de 'anteriores'
+    private Internacao converterLinha(LinhaCSV linha, Map<String, Internacao> anteriores) {
+        if (linha.tamanho() < 7) return null; // precisa ao menos até custoBaseDia
+
+        Internacao existente = anteriores.get(linha.campo(0));
+        if (existente != null) {
+            // só o que pode mudar: a alta
+            if (existente.getSaida() == null && !linha.campoVazio(5)) {
+                try { existente.darAlta(linha.campoDataHora(5)); }
+                catch (RuntimeException e) { /* saída inválida: mantém sem alta */ }
+            }
+            return existente;
+        }
+
+        Paciente p = pacienteRepo.buscarPorCpf(linha.campo(1)).orElse(null);
+        Medico   m = medicoRepo.buscarPorCrm(linha.campo(2)).orElse(null);
+        if (p == null || m == null) return null; // referência quebrada: pula a linha
+
+        try {
+            LocalDateTime entrada = linha.campoDataHora(4);
+            double custoDia = linha.campoDouble(6);
+
+            Internacao i = new Internacao(linha.campo(0), p, m, linha.campo(3, textos), entrada, custoDia);
+            if (!linha.campoVazio(5)) i.darAlta(linha.campoDataHora(5));
+            return i;
+        } catch (RuntimeException e) {
+            return null; // data/número inválido: pula a linha
+        }
+    }
+
+    // Depois de uma gravação NOSSA: memória e arquivo batem de novo
+    private void marcarEmDia() throws IOException {
+        assinaturaCarregada = CSVUtil.assinatura(caminhoArquivo);
     }
 
 }
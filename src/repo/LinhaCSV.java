@@ -0,0 +1,228 @@
+package repo;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * LinhaCSV
+ *
+ * "Visão" reutilizável de UMA linha do CSV durante a leitura em streaming
+ * (ver {@link CSVUtil#percorrerRegistros}).
+ *
+ * Em vez de criar uma String por linha e um array + List por split,
+ * o leitor aponta esta visão para o trecho do buffer onde a linha está
+ * e guarda só as posições (início/fim) de cada campo.
+ * Uma String só é criada quando o repositório pede o campo com {@link #campo(int)}.
+ * Números e datas podem ser lidos direto do buffer ({@link #campoInt}, {@link #campoDouble},
+ * {@link #campoDataHora}), sem criar String nenhuma.
+ *
+ * ATENÇÃO: o mesmo objeto é reaproveitado para a próxima linha.
+ * Não guarde a referência fora do visitante; copie os valores que precisar.
+ */
+public final class LinhaCSV {
+
+    private char[] buf;     // buffer do leitor (não é copiado)
+    private int inicio;     // início da linha no buffer
+    private int fim;        // fim (exclusivo) da linha no buffer
+
+    // posições de cada campo: [iniCampo[k], fimCampo[k])
+    private int[] iniCampo = new int[16];
+    private int[] fimCampo = new int[16];
+    private int qtdCampos;
+
+    // Chamado pelo CSVUtil: aponta a visão para buf[inicio, fim) e localiza os ';'
+    void reiniciar(char[] buf, int inicio, int fim) {
+        this.buf = buf;
+        this.inicio = inicio;
+        this.fim = fim;
+
+        qtdCampos = 0;
+        int ini = inicio;
+        for (int k = inicio; k <= fim; k++) {
+            if (k == fim || buf[k] == ';') {
+                if (qtdCampos == iniCampo.length) {
+                    iniCampo = Arrays.copyOf(iniCampo, qtdCampos * 2);
+                    fimCampo = Arrays.copyOf(fimCampo, qtdCampos * 2);
+                }
+                iniCampo[qtdCampos] = ini;
+                fimCampo[qtdCampos] = k;
+                qtdCampos++;
+                ini = k + 1;
+            }
+        }
+    }
+
+    // Quantidade de campos (mesma regra do split(";", -1): campos vazios contam)
+    public int tamanho() { return qtdCampos; }
+
+    // Campo i como String (aloca só aqui)
+    public String campo(int i) {
+        checar(i);
+        return new String(buf, iniCampo[i], fimCampo[i] - iniCampo[i]);
+    }
+
+    // Campo i, ou "" se a linha tiver menos colunas (útil para colunas opcionais)
+    public String campoOuVazio(int i) {
+        return (i < qtdCampos) ? campo(i) : "";
+    }
+
+    // Campo i pelo dicionário: textos repetidos (local, quarto...) voltam como a mesma String
+    String campo(int i, DicionarioStrings dicionario) {
+        checar(i);
+        return dicionario.de(buf, iniCampo[i], fimCampo[i]);
+    }
+
+    // Igual ao campoOuVazio, mas pelo dicionário
+    String campoOuVazio(int i, DicionarioStrings dicionario) {
+        return (i < qtdCampos) ? campo(i, dicionario) : "";
+    }
+
+    public boolean campoVazio(int i) {
+        checar(i);
+        return iniCampo[i] == fimCampo[i];
+    }
+
+    // Compara o campo i com um texto sem criar String
+    public boolean campoIgual(int i, String texto) {
+        checar(i);
+        int n = fimCampo[i] - iniCampo[i];
+        if (n != texto.length()) return false;
+        for (int k = 0; k < n; k++) {
+            if (buf[iniCampo[i] + k] != texto.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    // Cria uma visão avulsa de uma linha já em String (ex.: para usar no lugar de dividirLinha)
+    public static LinhaCSV de(String linha) {
+        char[] chars = linha.toCharArray();
+        LinhaCSV v = new LinhaCSV();
+        v.reiniciar(chars, 0, chars.length);
+        return v;
+    }
+
+    // ===== leitura direta de números e datas (sem criar String) =====
+
+    // Inteiro (com sinal opcional). Mesmas regras do Integer.parseInt: erro -> NumberFormatException
+    public int campoInt(int i) {
+        long v = campoLong(i);
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) throw erroNumero(i);
+        return (int) v;
+    }
+
+    public long campoLong(int i) {
+        checar(i);
+        int k = iniCampo[i], f = fimCampo[i];
+        boolean negativo = false;
+        if (k < f && (buf[k] == '-' || buf[k] == '+')) negativo = buf[k++] == '-';
+        if (k == f || f - k > 18) {
+            // vazio, ou longo demais para a conta rápida sem estouro
+            if (k == f) throw erroNumero(i);
+            return Long.parseLong(campo(i));
+        }
+        long v = 0;
+        for (; k < f; k++) {
+            int d = buf[k] - '0';
+            if (d < 0 || d > 9) throw erroNumero(i);
+            v = v * 10 + d;
+        }
+        return negativo ? -v : v;
+    }
+
+    // Decimal com '.' ou ',' (ex.: "250.0", "300,5"). Caminho rápido para o caso comum
+    // (até 15 dígitos, sem expoente): mantissa inteira / 10^casas, que é exato e bem arredondado.
+    // Qualquer outra coisa cai no Double.parseDouble.
+    public double campoDouble(int i) {
+        checar(i);
+        int k = iniCampo[i], f = fimCampo[i];
+        boolean negativo = false;
+        if (k < f && (buf[k] == '-' || buf[k] == '+')) negativo = buf[k++] == '-';
+
+        long mantissa = 0;
+        int digitos = 0, casas = 0;
+        boolean viuSeparador = false;
+        for (; k < f; k++) {
+            char ch = buf[k];
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                digitos++;
+                if (viuSeparador) casas++;
+            } else if ((ch == '.' || ch == ',') && !viuSeparador) {
+                viuSeparador = true;
+            } else {
+                digitos = -1; // caractere diferente (expoente, espaço...): caminho lento
+                break;
+            }
+        }
+        if (digitos > 0 && digitos <= 15) {
+            double v = mantissa / POTENCIAS_DE_10[casas];
+            return negativo ? -v : v;
+        }
+        return Double.parseDouble(campo(i).replace(',', '.'));
+    }
+
+    private static final double[] POTENCIAS_DE_10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    // Data/hora no formato do LocalDateTime.toString(): aaaa-MM-ddTHH:mm[:ss[.fração]].
+    // Os dígitos são lidos direto do buffer; formatos diferentes caem no LocalDateTime.parse.
+    // Datas impossíveis (ex.: mês 13) -> DateTimeException, como no parse.
+    public LocalDateTime campoDataHora(int i) {
+        checar(i);
+        int k = iniCampo[i], n = fimCampo[i] - k;
+        if (n < 16 || buf[k + 4] != '-' || buf[k + 7] != '-' || buf[k + 10] != 'T' || buf[k + 13] != ':') {
+            return LocalDateTime.parse(campo(i));
+        }
+        int ano = digitos(k, 4), mes = digitos(k + 5, 2), dia = digitos(k + 8, 2);
+        int hora = digitos(k + 11, 2), minuto = digitos(k + 14, 2);
+        int segundo = 0, nano = 0;
+        if (n > 16) {
+            if (n < 19 || buf[k + 16] != ':') return LocalDateTime.parse(campo(i));
+            segundo = digitos(k + 17, 2);
+            if (n > 19) {
+                int casasFracao = n - 20;
+                if (buf[k + 19] != '.' || casasFracao < 1 || casasFracao > 9) return LocalDateTime.parse(campo(i));
+                nano = digitos(k + 20, casasFracao);
+                for (int c = casasFracao; c < 9; c++) nano *= 10;
+            }
+        }
+        if ((ano | mes | dia | hora | minuto | segundo | nano) < 0) return LocalDateTime.parse(campo(i));
+        return LocalDateTime.of(ano, mes, dia, hora, minuto, segundo, nano);
+    }
+
+    // 'qtd' dígitos a partir de 'pos'; -1 se algum não for dígito
+    private int digitos(int pos, int qtd) {
+        int v = 0;
+        for (int k = pos; k < pos + qtd; k++) {
+            int d = buf[k] - '0';
+            if (d < 0 || d > 9) return -1;
+            v = v * 10 + d;
+        }
+        return v;
+    }
+
+    private NumberFormatException erroNumero(int i) {
+        return new NumberFormatException("Número inválido no campo " + i + ": \"" + campo(i) + "\"");
+    }
+
+    // A linha começa com o prefixo? (usado para pular o cabeçalho)
+    public boolean comecaCom(String prefixo) {
+        if (fim - inicio < prefixo.length()) return false;
+        for (int k = 0; k < prefixo.length(); k++) {
+            if (buf[inicio + k] != prefixo.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    private void checar(int i) {
+        if (i < 0 || i >= qtdCampos) {
+            throw new IndexOutOfBoundsException("Campo " + i + " inexistente (linha com " + qtdCampos + " campos)");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, inicio, fim - inicio);
+    }
+}
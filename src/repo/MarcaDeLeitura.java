@@ -0,0 +1,93 @@
+// MarcaDeLeitura.java — "até onde já lemos" um arquivo: tamanho, data de modificação e os
+// últimos bytes lidos. Se depois o arquivo só CRESCEU (mesmos bytes no fim do trecho antigo),
+// dá para ler só o pedaço novo em vez de reprocessar o arquivo inteiro.
+// Só serve para arquivos em que só se ACRESCENTA (o journal de consultas): um arquivo
+// reescrito inteiro pode crescer com o mesmo fim e linhas antigas diferentes.
+
+package repo;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+final class MarcaDeLeitura {
+
+    private static final int TAMANHO_CAUDA = 256; // bytes conferidos no fim do trecho já lido
+
+    private final String caminho;
+    private final long tamanho;
+    private final long modificado;
+    private final byte[] cauda;             // últimos bytes antes de 'tamanho'
+    private final boolean terminaEmLinha;   // último byte lido era '\n' (sem linha pela metade)
+
+    private MarcaDeLeitura(String caminho, long tamanho, long modificado, byte[] cauda, boolean terminaEmLinha) {
+        this.caminho = caminho;
+        this.tamanho = tamanho;
+        this.modificado = modificado;
+        this.cauda = cauda;
+        this.terminaEmLinha = terminaEmLinha;
+    }
+
+    // Tira a marca do arquivo como está agora. Quem lê o arquivo deve tirar a marca ANTES
+    // de ler: se algo for acrescentado no meio da leitura, é lido de novo depois (as cargas
+    // são idempotentes por id), em vez de ser perdido.
+    static MarcaDeLeitura de(String caminho) throws IOException {
+        Path path = Paths.get(caminho);
+        if (!Files.exists(path)) return new MarcaDeLeitura(caminho, 0, 0, new byte[0], true);
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            long tamanho = ch.size();
+            long modificado = Files.getLastModifiedTime(path).toMillis();
+            byte[] cauda = lerTrecho(ch, Math.max(0, tamanho - TAMANHO_CAUDA), tamanho);
+            boolean terminaEmLinha = cauda.length == 0 || cauda[cauda.length - 1] == '\n';
+            return new MarcaDeLeitura(caminho, tamanho, modificado, cauda, terminaEmLinha);
+        }
+    }
+
+    long tamanho() { return tamanho; }
+
+    // true se o arquivo não mudou nada desde a marca
+    boolean igual() throws IOException {
+        Path path = Paths.get(caminho);
+        if (!Files.exists(path)) return tamanho == 0;
+        return Files.size(path) == tamanho && Files.getLastModifiedTime(path).toMillis() == modificado;
+    }
+
+    // true se o arquivo só recebeu linhas novas no fim desde a marca
+    boolean soCresceu() throws IOException {
+        Path path = Paths.get(caminho);
+        if (!terminaEmLinha || !Files.exists(path)) return false;
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (ch.size() <= tamanho) return false;
+            byte[] atual = lerTrecho(ch, tamanho - cauda.length, tamanho);
+            return Arrays.equals(atual, cauda); // fim do trecho antigo continua igual
+        }
+    }
+
+    // Percorre só os registros acrescentados depois da marca
+    void percorrerNovos(String prefixoCabecalho, Consumer<LinhaCSV> visitante) throws IOException {
+        try (FileChannel ch = FileChannel.open(Paths.get(caminho), StandardOpenOption.READ)) {
+            ch.position(tamanho);
+            Reader in = Channels.newReader(ch, StandardCharsets.UTF_8);
+            CSVUtil.percorrerRegistros(in, prefixoCabecalho, visitante);
+        }
+    }
+
+    private static byte[] lerTrecho(FileChannel ch, long inicio, long fim) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (fim - inicio));
+        long pos = inicio;
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) break;
+            pos += n;
+        }
+        return Arrays.copyOf(buf.array(), buf.position());
+    }
+}
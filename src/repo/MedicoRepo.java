@@ -8,20 +8,35 @@ import model.Especialidade; // necessário para converter texto -> enum
 import model.Medico;        // necessário para instanciar Médicos
 
 import java.util.*;         // List, ArrayList, Collections, Optional, Stream
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException; // ; <- ATENÇÃO: faltava ponto-e-vírgula no seu import
 
 public class MedicoRepo {
 
     // 'private final' = a REFERÊNCIA não muda depois do construtor (boa prática)
     private final String caminhoArquivo;  // ex.: "data/medicos.csv"
+    private final String caminhoBinario;  // ex.: "data/medicos.bin" (cópia binária opcional do CSV)
+    private final ArquivoLarguraFixa arquivoFixo; // CSV com linhas de largura fixa (atualização no lugar)
 
     // Lista que mantém todos os médicos em memória enquanto o programa roda
     private final List<Medico> medicos;
 
+    // Índice CRM (em MAIÚSCULAS) -> Medico, para buscar em O(1) em vez de varrer a lista.
+    // ConcurrentHashMap: as buscas vêm de várias threads (agendamentos em paralelo) ao mesmo tempo
+    // que um cadastro insere. Recarga completa publica um mapa novo (volatile).
+    // Se um CRM mudar por setCrm, o médico avisa e só a entrada dele troca de chave.
+    private volatile Map<String, Medico> indicePorCrm = new ConcurrentHashMap<>();
+
+    // Largura fixa: linha de cada médico no arquivo (0 = cabeçalho) e quem mudou desde a última gravação
+    private final Map<Medico, Integer> linhaNoArquivo = new IdentityHashMap<>();
+    private final Set<Medico> alterados = Collections.newSetFromMap(new IdentityHashMap<>());
+
     // Construtor recebe o caminho do CSV e já carrega os dados
     // 'throws IOException' = declara que PODE lançar erro de arquivo; quem chama decide tratar
     public MedicoRepo(String caminhoArquivo) throws IOException {
         this.caminhoArquivo = caminhoArquivo; // guarda o caminho para usar em ler/gravar
+        this.caminhoBinario = CSVUtil.trocarExtensao(caminhoArquivo, ".bin");
+        this.arquivoFixo    = new ArquivoLarguraFixa(caminhoArquivo);
         this.medicos = new ArrayList<>();     // começa com lista vazia
         carregarDoArquivo();                  // carrega o CSV (se existir) para a lista
     }
@@ -29,94 +44,231 @@ public class MedicoRepo {
     // Carrega médicos do arquivo CSV para a lista em memória
     // Regra do formato: crm;nome;cpf;idade;especialidade;custoBase
     private void carregarDoArquivo() throws IOException {
-        List<String> linhas = CSVUtil.lerLinhas(caminhoArquivo); // lê todas as linhas (ou [] se o arquivo não existir)
         medicos.clear();                                         // limpa a lista para evitar duplicar dados
-        if (linhas.isEmpty()) return;                            // nada para carregar
 
-        // Se a primeira linha for um cabeçalho ("crm;..."), pulamos ela
-        int i = linhas.get(0).startsWith("crm;") ? 1 : 0;
-
-        // Percorre cada linha útil do arquivo
-        for (; i < linhas.size(); i++) {
-            String linha = linhas.get(i).trim(); // remove espaços extras
-            if (linha.isEmpty()) continue;       // ignora linhas em branco
+        // Se a cópia binária estiver ligada e for mais nova que o CSV, usa ela (mais rápida)
+        boolean carregado = false;
+        if (SnapshotBinario.habilitado() && SnapshotBinario.maisNovoQue(caminhoBinario, caminhoArquivo)) {
+            try {
+                medicos.addAll(SnapshotBinario.carregarMedicos(caminhoBinario));
+                carregado = true;
+            } catch (IOException e) {
+                medicos.clear(); // .bin inválido: lê o CSV normalmente
+            }
+        }
 
-            // Divide pelos ';' PRESERVANDO campos vazios (ex.: "a;b;c;" -> ["a","b","c",""])
-            List<String> cols = CSVUtil.dividirLinha(linha);
+        if (!carregado) {
+            // Lê em streaming; arquivos grandes são convertidos em pedaços paralelos (ordem preservada).
+            // Cabeçalho "crm;..." e linhas em branco já são pulados pelo CSVUtil
+            medicos.addAll(CSVUtil.lerRegistros(caminhoArquivo, "crm;", MedicoRepo::converterLinha));
 
-            // Conferimos se há TODAS as 6 colunas necessárias
-            if (cols.size() < 6) continue; // se faltar dado essencial, pula a linha
+            // deixa a cópia binária pronta para a próxima partida
+            if (SnapshotBinario.habilitado()) SnapshotBinario.salvarMedicos(caminhoBinario, medicos);
+        }
 
-            // Extrai colunas na ordem combinada
-            String crm      = cols.get(0); // 0 = CRM
-            String nome     = cols.get(1); // 1 = Nome
-            String cpf      = cols.get(2); // 2 = CPF
-            int idade       = Integer.parseInt(cols.get(3)); // 3 = Idade (string -> int)
+        reindexar(); // índice pronto ANTES de alguém buscar (inclusive em paralelo)
 
-            // 4 = Especialidade (pode vir "CARDIOLOGIA" ou "Cardiologia")
-            String espTxt   = cols.get(4);
-            // usamos fromString para aceitar tanto o name() quanto o rótulo amigável
-            Especialidade esp;
-            try {
-                esp = Especialidade.fromString(espTxt);
-            } catch (IllegalArgumentException e) {
-                // se o valor estiver inválido, ignoramos esta linha (poderia também logar/avisar)
-                continue;
-            }
+        // largura fixa: se o arquivo já estiver nesse formato, a próxima gravação já é só das linhas alteradas
+        if (ArquivoLarguraFixa.habilitado()) arquivoFixo.adotar(montarLinhas());
+    }
 
-            // 5 = custoBase (ATENÇÃO: decimal deve usar PONTO; se vier com vírgula, trocamos)
-            String custoTxt = cols.get(5);
-            double custoBase = Double.parseDouble(custoTxt.replace(',', '.'));
+    // Converte UMA linha do CSV em Medico (ou null se a linha for inválida).
+    // Pode rodar em várias threads: só cria objetos, não mexe na lista.
+    private static Medico converterLinha(LinhaCSV linha) {
+        // Conferimos se há TODAS as 6 colunas necessárias
+        if (linha.tamanho() < 6) return null; // se faltar dado essencial, pula a linha
 
-            // Cria o médico com o CONSTRUTOR COMPLETO que modelamos:
-            // Medico(String nome, String cpf, int idade, String crm, Especialidade esp, double custoBaseConsulta)
-            Medico medico = new Medico(nome, cpf, idade, crm, esp, custoBase);
+        // Extrai colunas na ordem combinada
+        String crm      = linha.campo(0); // 0 = CRM
+        String nome     = linha.campo(1); // 1 = Nome
+        String cpf      = linha.campo(2); // 2 = CPF
+        int idade       = linha.campoInt(3); // 3 = Idade (string -> int)
 
-            // Adiciona na lista em memória
-            medicos.add(medico);
+        // 4 = Especialidade (pode vir "CARDIOLOGIA" ou "Cardiologia")
+        // usamos fromString para aceitar tanto o name() quanto o rótulo amigável
+        Especialidade esp;
+        try {
+            esp = Especialidade.fromString(linha.campo(4));
+        } catch (IllegalArgumentException e) {
+            // se o valor estiver inválido, ignoramos esta linha (poderia também logar/avisar)
+            return null;
         }
+
+        // 5 = custoBase (ATENÇÃO: decimal deve usar PONTO; se vier com vírgula, trocamos)
+        double custoBase = linha.campoDouble(5);
+
+        // Cria o médico com o CONSTRUTOR COMPLETO que modelamos:
+        // Medico(String nome, String cpf, int idade, String crm, Especialidade esp, double custoBaseConsulta)
+        return new Medico(nome, cpf, idade, crm, esp, custoBase);
     }
 
     // Salva a lista de médicos em memória no arquivo CSV
     // Regra do formato: crm;nome;cpf;idade;especialidade;custoBase
-    private void salvarNoArquivo() throws IOException {
+    // (grava tudo: quem chama não disse o que mudou; para um médico alterado por setter, use atualizar)
+    public void salvarNoArquivo() throws IOException {
+        List<String> linhas = montarLinhas();
+        alterados.clear();
+
+        if (ArquivoLarguraFixa.habilitado()) {
+            arquivoFixo.gravar(linhas);
+        } else {
+            // Usa o CSVUtil para escrever todas as linhas no arquivo (cria 'data/' se faltar)
+            CSVUtil.escreverLinhas(caminhoArquivo, linhas);
+        }
+
+        // cópia binária opcional (gravada DEPOIS do CSV, então fica "mais nova" que ele)
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarMedicos(caminhoBinario, medicos);
+    }
+
+    // Médico já cadastrado foi alterado (ex.: setCustoBaseConsulta): grava só a linha dele
+    // (com largura fixa ligada; sem ela, o CSV inteiro é regravado como sempre)
+    public void atualizar(Medico medico) throws IOException {
+        synchronized (this) {
+            if (!linhaNoArquivo.containsKey(medico)) throw new IllegalArgumentException("Médico não cadastrado: " + medico.getCrm());
+            alterados.add(medico);
+        }
+        gravarAlterados();
+    }
+
+    // Grava os médicos marcados em 'alterados' (cadastro, importação, troca de CRM, atualizar)
+    private synchronized void gravarAlterados() throws IOException {
+        if (!ArquivoLarguraFixa.habilitado()) {
+            salvarNoArquivo();
+            return;
+        }
+        SortedMap<Integer, String> linhas = new TreeMap<>();
+        for (Medico m : alterados) linhas.put(linhaNoArquivo.get(m), linhaCsv(m));
+        arquivoFixo.gravar(medicos.size() + 1, linhas, this::montarLinhas);
+        alterados.clear();
+
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarMedicos(caminhoBinario, medicos);
+    }
+
+    // Monta as linhas do CSV (cabeçalho + um médico por linha)
+    private List<String> montarLinhas() {
         List<String> linhas = new ArrayList<>();
 
         // Adiciona o cabeçalho (facilita leitura/depuração manual do arquivo)
         linhas.add("crm;nome;cpf;idade;especialidade;custoBase");
 
         // Adiciona cada médico como uma linha no formato correto
-        for (Medico m : medicos) {
-            // Especialidade: preferimos salvar com name() (ex.: "CARDIOLOGIA") para ler fácil com valueOf/ fromString
-            linhas.add(CSVUtil.juntarCampos(List.of(
-                m.getCrm(),                                // crm
-                m.getNome(),                               // nome
-                m.getCpf(),                                // cpf
-                String.valueOf(m.getIdade()),              // idade
-                m.getEspecialidade().name(),               // especialidade (NAME, não rótulo)
-                String.valueOf(m.getCustoBaseConsulta())   // custoBase (com ponto)
-            )));
-        }
+        for (Medico m : medicos) linhas.add(linhaCsv(m));
+        return linhas;
+    }
 
-        // Usa o CSVUtil para escrever todas as linhas no arquivo (cria 'data/' se faltar)
-        CSVUtil.escreverLinhas(caminhoArquivo, linhas);
+    // Uma linha "crm;nome;cpf;idade;especialidade;custoBase"
+    private static String linhaCsv(Medico m) {
+        // Especialidade: preferimos salvar com name() (ex.: "CARDIOLOGIA") para ler fácil com valueOf/ fromString
+        return CSVUtil.juntarCampos(List.of(
+            m.getCrm(),                                // crm
+            m.getNome(),                               // nome
+            m.getCpf(),                                // cpf
+            String.valueOf(m.getIdade()),              // idade
+            m.getEspecialidade().name(),               // especialidade (NAME, não rótulo)
+            String.valueOf(m.getCustoBaseConsulta())   // custoBase (com ponto)
+        ));
     }
 
     // Cadastra um novo médico (se o CRM não existir); retorna true se cadastrado, false se CRM já existe
     public boolean cadastrarMedico(Medico medico) throws IOException {
         if (medico == null) throw new IllegalArgumentException("Médico nulo");
 
-        // Verifica se já existe médico com esse CRM (ignorando maiúsculas/minúsculas)
-        boolean existe = medicos.stream()
-                .anyMatch(m -> m.getCrm().equalsIgnoreCase(medico.getCrm()));
-        if (existe) return false; // já existe, não cadastra
-
-        // Adiciona na lista e salva no arquivo
-        medicos.add(medico);
-        salvarNoArquivo();
+        // Verifica se já existe médico com esse CRM (ignorando maiúsculas/minúsculas) — pelo índice, O(1)
+        // (putIfAbsent: conferir e inserir é um passo só, mesmo com buscas em paralelo)
+        String chave = normalizarCrm(medico.getCrm());
+        synchronized (this) {
+            if (indicePorCrm.putIfAbsent(chave, medico) != null) return false; // já existe, não cadastra
+            medicos.add(medico); // adiciona na lista (já está no índice)
+            linhaNoArquivo.put(medico, medicos.size());
+            alterados.add(medico);
+        }
+        medico.setOuvinteCrm((antigo, novo) -> trocarChave(medico, antigo, novo));
+        gravarAlterados();
         return true; // cadastrado com sucesso
     }
 
+    // IMPORTAÇÃO EM MASSA: lê um CSV "crm;nome;cpf;idade;especialidade;custoBase"
+    // e grava UMA vez só no final (mesmo esquema do PacienteRepo.importarCsv).
+    // CRM repetido (no cadastro atual ou no próprio arquivo) é recusado e vai para o relatório.
+    public ResultadoImportacao importarCsv(String caminhoOrigem) throws IOException {
+        Map<String, Integer> vistos = new HashMap<>();     // CRM -> registro onde apareceu no arquivo
+        List<Candidato> candidatos = new ArrayList<>();    // linhas boas, ainda fora do cadastro
+        Map<Integer, String> rejeitados = new TreeMap<>(); // registro -> recusa (na ordem do arquivo)
+        int[] lidos = {0};                                   // contador mutável dentro do lambda
+
+        // 1) ler e validar o arquivo: sem trava (não mexe no cadastro)
+        CSVUtil.percorrerRegistros(caminhoOrigem, "crm;", linha -> {
+            int registro = ++lidos[0];
+            String motivo = validarLinha(linha);
+            if (motivo == null) {
+                String chave = normalizarCrm(linha.campo(0));
+                if (vistos.containsKey(chave)) {
+                    motivo = "CRM repetido no arquivo (registro " + vistos.get(chave) + ")";
+                } else {
+                    vistos.put(chave, registro);
+                    candidatos.add(new Candidato(registro, linha.toString(), converterLinha(linha)));
+                }
+            }
+            if (motivo != null) rejeitados.put(registro, recusa(registro, motivo, linha.toString()));
+        });
+
+        // 2) conferir contra o cadastro e inserir, sob a MESMA trava do cadastrarMedico: um CRM
+        //    cadastrado em paralelo não entra duas vezes. Só os novos são indexados (sem reindexar tudo).
+        int importados = 0;
+        synchronized (this) {
+            for (Candidato c : candidatos) {
+                Medico m = c.novo();
+                if (indicePorCrm.putIfAbsent(normalizarCrm(m.getCrm()), m) != null) {
+                    rejeitados.put(c.registro(), recusa(c.registro(), "CRM já cadastrado", c.linha()));
+                    continue;
+                }
+                medicos.add(m);
+                linhaNoArquivo.put(m, medicos.size());
+                alterados.add(m);
+                m.setOuvinteCrm((antigo, novo) -> trocarChave(m, antigo, novo));
+                importados++;
+            }
+        }
+        if (importados > 0) gravarAlterados(); // uma escrita só, para o lote inteiro (só as linhas novas)
+        return new ResultadoImportacao(lidos[0], importados, new ArrayList<>(rejeitados.values()));
+    }
+
+    // linha boa do arquivo importado, já convertida, esperando a checagem contra o cadastro
+    private record Candidato(int registro, String linha, Medico novo) {}
+
+    private static String recusa(int registro, String motivo, String linha) {
+        return "registro " + registro + ": " + motivo + " | " + linha;
+    }
+
+    // Devolve o motivo da recusa, ou null se a linha estiver boa
+    private static String validarLinha(LinhaCSV linha) {
+        if (linha.tamanho() < 6) return "faltam colunas (esperado crm;nome;cpf;idade;especialidade;custoBase)";
+        if (linha.campo(0).isBlank()) return "CRM vazio";
+        if (linha.campo(1).isBlank()) return "nome vazio";
+        if (PacienteRepo.normalizarCpf(linha.campo(2)).isEmpty()) return "CPF vazio";
+
+        try {
+            int idade = linha.campoInt(3);
+            if (idade < 18 || idade > 120) return "idade fora do intervalo: " + idade;
+        } catch (NumberFormatException e) {
+            return "idade inválida: " + linha.campo(3);
+        }
+
+        try {
+            Especialidade.fromString(linha.campo(4));
+        } catch (IllegalArgumentException e) {
+            return "especialidade desconhecida: " + linha.campo(4);
+        }
+
+        try {
+            double custo = linha.campoDouble(5);
+            if (custo < 0 || Double.isNaN(custo) || Double.isInfinite(custo)) return "custo base inválido: " + linha.campo(5);
+        } catch (NumberFormatException e) {
+            return "custo base inválido: " + linha.campo(5);
+        }
+        return null;
+    }
+
     // Retorna uma lista imutável (read-only) com todos os médicos
     public List<Medico> listarMedicos() {
         return Collections.unmodifiableList(medicos);
@@ -125,8 +277,44 @@ public class MedicoRepo {
     // Busca um médico pelo CRM (ignora maiúsculas/minúsculas); retorna Optional vazio se não achar
     public Optional<Medico> buscarPorCrm(String crm) {
         if (crm == null) return Optional.empty();
-        return medicos.stream()
-            .filter(m -> m.getCrm().equalsIgnoreCase(crm))
-            .findFirst();
+        return Optional.ofNullable(indicePorCrm.get(normalizarCrm(crm)));
+    }
+
+    // CRM normalizado: maiúsculas (mesma regra do equalsIgnoreCase usado antes)
+    public static String normalizarCrm(String crm) {
+        return (crm == null) ? "" : crm.toUpperCase(Locale.ROOT);
+    }
+
+    // Monta um índice NOVO a partir da lista (o primeiro de cada CRM vence, como no findFirst)
+    // e passa a ouvir as trocas de CRM de todos os médicos
+    private synchronized void reindexar() {
+        Map<String, Medico> novo = new ConcurrentHashMap<>(medicos.size() * 2);
+        linhaNoArquivo.clear();
+        for (Medico m : medicos) {
+            novo.putIfAbsent(normalizarCrm(m.getCrm()), m);
+            linhaNoArquivo.put(m, linhaNoArquivo.size() + 1);
+            m.setOuvinteCrm((antigo, crmNovo) -> trocarChave(m, antigo, crmNovo));
+        }
+        indicePorCrm = novo;
+    }
+
+    // setCrm num médico do cadastro: só a entrada dele muda de chave (CRM antigo -> novo).
+    // CRM novo que já é de OUTRO médico: recusa antes de mexer no índice (e o setCrm não troca)
+    private synchronized void trocarChave(Medico m, String antigo, String novo) {
+        Medico dono = indicePorCrm.get(normalizarCrm(novo));
+        if (dono != null && dono != m) throw new IllegalArgumentException("CRM já cadastrado: " + novo);
+
+        String chaveAntiga = normalizarCrm(antigo);
+        if (indicePorCrm.remove(chaveAntiga, m)) {
+            // CSV antigo com CRM repetido: o próximo da lista com esse CRM assume a chave
+            for (Medico outro : medicos) {
+                if (outro != m && normalizarCrm(outro.getCrm()).equals(chaveAntiga)) {
+                    indicePorCrm.putIfAbsent(chaveAntiga, outro);
+                    break;
+                }
+            }
+        }
+        indicePorCrm.putIfAbsent(normalizarCrm(novo), m);
+        alterados.add(m); // a linha dele muda na próxima gravação
     }
 }
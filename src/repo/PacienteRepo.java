@@ -14,20 +14,36 @@ import model.PlanoEspecial;  // novo plano
 
 
 import java.util.*;        // List, ArrayList, Collections, Optional, Stream
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException; // IOException = exceções de entrada/saída de arquivo
 
 public class PacienteRepo {
 
     // 'private final' = a REFERÊNCIA não muda depois do construtor (boa prática)
     private final String caminhoArquivo;  // ex.: "data/pacientes.csv"
+    private final String caminhoBinario;  // ex.: "data/pacientes.bin" (cópia binária opcional do CSV)
+    private final ArquivoLarguraFixa arquivoFixo; // CSV com linhas de largura fixa (atualização no lugar)
 
     // Lista que mantém todos os pacientes em memória enquanto o programa roda
     private final List<Paciente> pacientes;
 
+    // Índice CPF normalizado -> Paciente, para buscar em O(1) em vez de varrer a lista.
+    // ConcurrentHashMap: as buscas vêm de várias threads (agendamentos em paralelo) ao mesmo tempo
+    // que um cadastro insere. Recarga completa publica um mapa novo (volatile).
+    // Se um CPF mudar por setCpf, o paciente avisa e só a entrada dele troca de chave.
+    private volatile Map<String, Paciente> indicePorCpf = new ConcurrentHashMap<>();
+
+    // Largura fixa: linha de cada paciente no arquivo (0 = cabeçalho) e quem mudou desde a última gravação.
+    // Só esses são regravados (no lugar), sem comparar o cadastro inteiro.
+    private final Map<Paciente, Integer> linhaNoArquivo = new IdentityHashMap<>();
+    private final Set<Paciente> alterados = Collections.newSetFromMap(new IdentityHashMap<>());
+
     // Construtor recebe o caminho do CSV e já carrega os dados
     // 'throws IOException' = declara que PODE lançar erro de arquivo; quem chama decide tratar
     public PacienteRepo(String caminhoArquivo) throws IOException {
         this.caminhoArquivo = caminhoArquivo; // guarda o caminho para usar em ler/gravar
+        this.caminhoBinario = CSVUtil.trocarExtensao(caminhoArquivo, ".bin");
+        this.arquivoFixo    = new ArquivoLarguraFixa(caminhoArquivo);
         this.pacientes = new ArrayList<>();   // começa com lista vazia
         carregarDoArquivo();                  // carrega o CSV (se existir) para a lista
     }
@@ -35,95 +51,230 @@ public class PacienteRepo {
     // Carrega pacientes do arquivo CSV para a lista em memória
     // Regra do formato: cpf;nome;idade;plano (plano vazio = sem plano)
     private void carregarDoArquivo() throws IOException {
-        List<String> linhas = CSVUtil.lerLinhas(caminhoArquivo); // lê todas as linhas (ou [] se o arquivo não existir)
         pacientes.clear();                                       // limpa a lista para evitar duplicar dados
 
-        if (linhas.isEmpty()) return;                            // nada para carregar
-
-        // Se a primeira linha for um cabeçalho ("cpf;..."), pulamos ela
-        int i = linhas.get(0).startsWith("cpf;") ? 1 : 0;
-
-        // Percorre cada linha útil do arquivo
-        for (; i < linhas.size(); i++) {
-            String linha = linhas.get(i).trim();    // remove espaços extras
-            if (linha.isEmpty()) continue;          // ignora linhas em branco
-
-            // Divide pelos ';' PRESERVANDO campos vazios (ex.: "a;b;c;" -> ["a","b","c",""])
-            List<String> partes = CSVUtil.dividirLinha(linha);
-
-            // Conferimos se há ao menos cpf;nome;idade
-            if (partes.size() < 3) continue;        // se faltar dado essencial, pula a linha
-
-            String cpf       = partes.get(0);       // coluna 0 = CPF
-            String nome      = partes.get(1);       // coluna 1 = Nome
-            int idade        = Integer.parseInt(partes.get(2)); // coluna 2 = Idade (string -> int)
-            String tipoPlano = (partes.size() >= 4) ? partes.get(3) : ""; // coluna 3 = Plano (pode estar vazia)
-            
-            // Cria o paciente com os 3 campos básicos (como modelamos)
-            Paciente paciente = new Paciente(nome, cpf, idade);
-
-            // Se houver plano no CSV, aplica (BASICO / PLUS / ESPECIAL / NENHUM)
-    if (tipoPlano != null && !tipoPlano.isBlank()) {
-        switch (tipoPlano.trim().toUpperCase()) {
-            case "BASICO" -> paciente.setPlano(new PlanoBasico());
-            case "PLUS" -> paciente.setPlano(new PlanoPlus());
-            case "ESPECIAL" -> paciente.setPlano(new PlanoEspecial());
-            case "NENHUM" -> paciente.setPlano(null); // explícito: sem plano
-            default -> {
-                // valor desconhecido no CSV: por segurança, sem plano
-                paciente.setPlano(null);
-                // (opcional) System.out.println("Aviso: plano desconhecido no CSV: " + tipoPlano);
+        // Se a cópia binária estiver ligada e for mais nova que o CSV, usa ela (mais rápida)
+        boolean carregado = false;
+        if (SnapshotBinario.habilitado() && SnapshotBinario.maisNovoQue(caminhoBinario, caminhoArquivo)) {
+            try {
+                pacientes.addAll(SnapshotBinario.carregarPacientes(caminhoBinario));
+                carregado = true;
+            } catch (IOException e) {
+                pacientes.clear(); // .bin inválido: lê o CSV normalmente
             }
         }
+
+        if (!carregado) {
+            // Lê em streaming (sem carregar o arquivo inteiro); arquivos grandes são
+            // convertidos em pedaços paralelos e juntados na ordem original.
+            // O cabeçalho ("cpf;...") e as linhas em branco já são pulados pelo CSVUtil
+            pacientes.addAll(CSVUtil.lerRegistros(caminhoArquivo, "cpf;", PacienteRepo::converterLinha));
+
+            // deixa a cópia binária pronta para a próxima partida
+            if (SnapshotBinario.habilitado()) SnapshotBinario.salvarPacientes(caminhoBinario, pacientes);
+        }
+
+        reindexar(); // índice pronto ANTES de alguém buscar (inclusive em paralelo)
+
+        // largura fixa: se o arquivo já estiver nesse formato, a próxima gravação já é só das linhas alteradas
+        if (ArquivoLarguraFixa.habilitado()) arquivoFixo.adotar(montarLinhas());
     }
 
+    // Converte UMA linha do CSV em Paciente (ou null se a linha for inválida).
+    // Pode rodar em várias threads: só cria objetos, não mexe na lista.
+    private static Paciente converterLinha(LinhaCSV linha) {
+        // Conferimos se há ao menos cpf;nome;idade
+        if (linha.tamanho() < 3) return null;   // se faltar dado essencial, pula a linha
+
+        String cpf       = linha.campo(0);      // coluna 0 = CPF
+        String nome      = linha.campo(1);      // coluna 1 = Nome
+        int idade        = linha.campoInt(2); // coluna 2 = Idade (string -> int)
+        String tipoPlano = linha.campoOuVazio(3); // coluna 3 = Plano (pode estar vazia)
 
-            // Adiciona na lista em memória
-            pacientes.add(paciente);
+        // Cria o paciente com os 3 campos básicos (como modelamos)
+        Paciente paciente = new Paciente(nome, cpf, idade);
+
+        // Se houver plano no CSV, aplica (BASICO / PLUS / ESPECIAL / NENHUM)
+        if (!tipoPlano.isBlank()) {
+            switch (tipoPlano.trim().toUpperCase()) {
+                case "BASICO" -> paciente.setPlano(new PlanoBasico());
+                case "PLUS" -> paciente.setPlano(new PlanoPlus());
+                case "ESPECIAL" -> paciente.setPlano(new PlanoEspecial());
+                case "NENHUM" -> paciente.setPlano(null); // explícito: sem plano
+                default -> {
+                    // valor desconhecido no CSV: por segurança, sem plano
+                    paciente.setPlano(null);
+                }
+            }
         }
+        return paciente;
     }
 
-    // Salva a lista de pacientes no arquivo CSV
+    // Salva a lista de pacientes no arquivo CSV (inteira: quem chama não disse o que mudou)
     // Padrão adotado: primeira linha é o cabeçalho e plano vazio = sem plano
     public void salvarNoArquivo() throws IOException {
+        List<String> linhas = montarLinhas();
+        alterados.clear();
+
+        if (ArquivoLarguraFixa.habilitado()) {
+            arquivoFixo.gravar(linhas);
+        } else {
+            CSVUtil.escreverLinhas(caminhoArquivo, linhas); // grava tudo no disco (cria pasta 'data/' se precisar)
+        }
+
+        // cópia binária opcional (gravada DEPOIS do CSV, então fica "mais nova" que ele)
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarPacientes(caminhoBinario, pacientes);
+    }
+
+    // Paciente já cadastrado foi alterado (ex.: setPlano): grava só a linha dele
+    // (com largura fixa ligada; sem ela, o CSV inteiro é regravado como sempre)
+    public void atualizar(Paciente paciente) throws IOException {
+        synchronized (this) {
+            if (!linhaNoArquivo.containsKey(paciente)) throw new IllegalArgumentException("Paciente não cadastrado: " + paciente.getCpf());
+            alterados.add(paciente);
+        }
+        gravarAlterados();
+    }
+
+    // Grava os pacientes marcados em 'alterados' (cadastro, importação, troca de CPF, atualizar)
+    private synchronized void gravarAlterados() throws IOException {
+        if (!ArquivoLarguraFixa.habilitado()) {
+            salvarNoArquivo();
+            return;
+        }
+        SortedMap<Integer, String> linhas = new TreeMap<>();
+        for (Paciente p : alterados) linhas.put(linhaNoArquivo.get(p), linhaCsv(p));
+        arquivoFixo.gravar(pacientes.size() + 1, linhas, this::montarLinhas);
+        alterados.clear();
+
+        if (SnapshotBinario.habilitado()) SnapshotBinario.salvarPacientes(caminhoBinario, pacientes);
+    }
+
+    // Monta as linhas do CSV (cabeçalho + um paciente por linha)
+    private List<String> montarLinhas() {
         List<String> linhas = new ArrayList<>();            // acumulador de linhas do arquivo
         linhas.add("cpf;nome;idade;plano");                 // cabeçalho (ajuda a ler/depurar)
+        for (Paciente p : pacientes) linhas.add(linhaCsv(p)); // adiciona ao arquivo a ser gravado
+        return linhas;
+    }
+
+    // Uma linha "cpf;nome;idade;plano"
+    private static String linhaCsv(Paciente p) {
+        // converte o objeto de plano para a string do CSV (BASICO/PLUS/ESPECIAL/NENHUM)
+        String tipoPlano =
+        (p.getPlano() == null)                    ? "NENHUM" :
+        (p.getPlano() instanceof PlanoBasico)     ? "BASICO"  :
+        (p.getPlano() instanceof PlanoPlus)       ? "PLUS"    :
+        (p.getPlano() instanceof PlanoEspecial)   ? "ESPECIAL":
+        "NENHUM"; // fallback
 
-        // Para cada paciente da lista, montar uma linha "cpf;nome;idade;plano"
-        for (Paciente p : pacientes) {
-            // converte o objeto de plano para a string do CSV (BASICO/PLUS/ESPECIAL/NENHUM)
-            String tipoPlano =
-            (p.getPlano() == null)                    ? "NENHUM" :
-            (p.getPlano() instanceof PlanoBasico)     ? "BASICO"  :
-            (p.getPlano() instanceof PlanoPlus)       ? "PLUS"    :
-            (p.getPlano() instanceof PlanoEspecial)   ? "ESPECIAL":
-            "NENHUM"; // fallback
-
-
-            // Junta os campos com ';' usando o util (evita bugs com split)
-            String linha = CSVUtil.juntarCampos(List.of(
-                    p.getCpf(),
-                    p.getNome(),
-                    String.valueOf(p.getIdade()),
-                    tipoPlano
-            ));
-
-            linhas.add(linha); // adiciona ao arquivo a ser gravado
-        }
 
-        CSVUtil.escreverLinhas(caminhoArquivo, linhas); // grava tudo no disco (cria pasta 'data/' se precisar)
+        // Junta os campos com ';' usando o util (evita bugs com split)
+        return CSVUtil.juntarCampos(List.of(
+                p.getCpf(),
+                p.getNome(),
+                String.valueOf(p.getIdade()),
+                tipoPlano
+        ));
     }
 
     // Adiciona um novo paciente na lista e já salva no arquivo
     public void adicionar(Paciente paciente) throws IOException {
         if (paciente == null) throw new IllegalArgumentException("Paciente nulo"); // defesa contra erro de programação
 
-        // Verifica duplicidade por CPF (regra natural: um CPF = um paciente)
-        boolean cpfJaExiste = pacientes.stream().anyMatch(p -> p.getCpf().equals(paciente.getCpf()));
-        if (cpfJaExiste) throw new IllegalArgumentException("CPF já cadastrado: " + paciente.getCpf());
+        // Verifica duplicidade por CPF (regra natural: um CPF = um paciente) — pelo índice, O(1)
+        // (putIfAbsent: conferir e inserir é um passo só, mesmo com buscas em paralelo)
+        String chave = normalizarCpf(paciente.getCpf());
+        synchronized (this) {
+            if (indicePorCpf.putIfAbsent(chave, paciente) != null) {
+                throw new IllegalArgumentException("CPF já cadastrado: " + paciente.getCpf());
+            }
+            pacientes.add(paciente); // adiciona na memória
+            linhaNoArquivo.put(paciente, pacientes.size());
+            alterados.add(paciente);
+        }
+        paciente.setOuvinteCpf((antigo, novo) -> trocarChave(paciente, antigo, novo));
+        gravarAlterados();       // persiste no CSV logo em seguida (simples e seguro para este trabalho)
+    }
 
-        pacientes.add(paciente); // adiciona na memória
-        salvarNoArquivo();       // persiste no CSV logo em seguida (simples e seguro para este trabalho)
+    // IMPORTAÇÃO EM MASSA: lê um CSV "cpf;nome;idade;plano" (ex.: cadastro de outra clínica)
+    // e grava UMA vez só no final, em vez de reescrever o arquivo a cada paciente.
+    // Cada linha passa por: validação dos campos -> conversão -> checagem de CPF repetido
+    // (contra o cadastro atual E contra as linhas anteriores do próprio arquivo).
+    // Linhas recusadas não interrompem a importação: vão para o relatório do resultado.
+    public ResultadoImportacao importarCsv(String caminhoOrigem) throws IOException {
+        Map<String, Integer> vistos = new HashMap<>();     // CPF -> registro onde apareceu no arquivo
+        List<Candidato> candidatos = new ArrayList<>();    // linhas boas, ainda fora do cadastro
+        Map<Integer, String> rejeitados = new TreeMap<>(); // registro -> recusa (na ordem do arquivo)
+        int[] lidos = {0};                                   // contador mutável dentro do lambda
+
+        // 1) ler e validar o arquivo: sem trava (não mexe no cadastro)
+        CSVUtil.percorrerRegistros(caminhoOrigem, "cpf;", linha -> {
+            int registro = ++lidos[0];
+            String motivo = validarLinha(linha);
+            if (motivo == null) {
+                String chave = normalizarCpf(linha.campo(0));
+                if (vistos.containsKey(chave)) {
+                    motivo = "CPF repetido no arquivo (registro " + vistos.get(chave) + ")";
+                } else {
+                    vistos.put(chave, registro);
+                    candidatos.add(new Candidato(registro, linha.toString(), converterLinha(linha)));
+                }
+            }
+            if (motivo != null) rejeitados.put(registro, recusa(registro, motivo, linha.toString()));
+        });
+
+        // 2) conferir contra o cadastro e inserir, sob a MESMA trava do adicionar: um CPF
+        //    cadastrado em paralelo não entra duas vezes. Só os novos são indexados (sem reindexar tudo).
+        int importados = 0;
+        synchronized (this) {
+            for (Candidato c : candidatos) {
+                Paciente p = c.novo();
+                if (indicePorCpf.putIfAbsent(normalizarCpf(p.getCpf()), p) != null) {
+                    rejeitados.put(c.registro(), recusa(c.registro(), "CPF já cadastrado", c.linha()));
+                    continue;
+                }
+                pacientes.add(p);
+                linhaNoArquivo.put(p, pacientes.size());
+                alterados.add(p);
+                p.setOuvinteCpf((antigo, novo) -> trocarChave(p, antigo, novo));
+                importados++;
+            }
+        }
+        if (importados > 0) gravarAlterados(); // uma escrita só, para o lote inteiro (só as linhas novas)
+        return new ResultadoImportacao(lidos[0], importados, new ArrayList<>(rejeitados.values()));
+    }
+
+    // linha boa do arquivo importado, já convertida, esperando a checagem contra o cadastro
+    private record Candidato(int registro, String linha, Paciente novo) {}
+
+    private static String recusa(int registro, String motivo, String linha) {
+        return "registro " + registro + ": " + motivo + " | " + linha;
+    }
+
+    // Devolve o motivo da recusa, ou null se a linha estiver boa
+    private static String validarLinha(LinhaCSV linha) {
+        if (linha.tamanho() < 3) return "faltam colunas (esperado cpf;nome;idade;plano)";
+
+        String cpf = normalizarCpf(linha.campo(0));
+        if (cpf.length() != 11) return "CPF deve ter 11 dígitos";
+        for (int k = 0; k < cpf.length(); k++) {
+            if (!Character.isDigit(cpf.charAt(k))) return "CPF deve ter só dígitos";
+        }
+        if (linha.campo(1).isBlank()) return "nome vazio";
+
+        try {
+            int idade = linha.campoInt(2);
+            if (idade < 0 || idade > 150) return "idade fora do intervalo: " + idade;
+        } catch (NumberFormatException e) {
+            return "idade inválida: " + linha.campo(2);
+        }
+
+        String plano = linha.campoOuVazio(3).trim().toUpperCase(Locale.ROOT);
+        switch (plano) {
+            case "", "BASICO", "PLUS", "ESPECIAL", "NENHUM" -> { return null; }
+            default -> { return "plano desconhecido: " + linha.campo(3); }
+        }
     }
 
     // Lista todos os pacientes (como uma visão IMUTÁVEL)
@@ -132,11 +283,53 @@ public class PacienteRepo {
         return Collections.unmodifiableList(pacientes); // ainda reflete mudanças internas, mas não permite modificar de fora
     }
 
-    // Busca um paciente pelo CPF (varre a lista em memória)
+    // Busca um paciente pelo CPF (pelo índice, sem varrer a lista)
     public Optional<Paciente> buscarPorCpf(String cpf) {
         if (cpf == null) return Optional.empty(); // defesa simples
-        return pacientes.stream()
-                .filter(p -> p.getCpf().equals(cpf)) // compara CPF
-                .findFirst();                        // devolve o primeiro que bater (ou Optional.empty)
+        return Optional.ofNullable(indicePorCpf.get(normalizarCpf(cpf)));
+    }
+
+    // CPF normalizado: sem pontos, traços e espaços ("123.456.789-00" == "12345678900")
+    public static String normalizarCpf(String cpf) {
+        if (cpf == null) return "";
+        StringBuilder sb = new StringBuilder(cpf.length());
+        for (int k = 0; k < cpf.length(); k++) {
+            char ch = cpf.charAt(k);
+            if (ch != '.' && ch != '-' && !Character.isWhitespace(ch)) sb.append(ch);
+        }
+        return sb.toString();
+    }
+
+    // Monta um índice NOVO a partir da lista (o primeiro de cada CPF vence, como no findFirst)
+    // e passa a ouvir as trocas de CPF de todos os pacientes
+    private synchronized void reindexar() {
+        Map<String, Paciente> novo = new ConcurrentHashMap<>(pacientes.size() * 2);
+        linhaNoArquivo.clear();
+        for (Paciente p : pacientes) {
+            novo.putIfAbsent(normalizarCpf(p.getCpf()), p);
+            linhaNoArquivo.put(p, linhaNoArquivo.size() + 1);
+            p.setOuvinteCpf((antigo, cpfNovo) -> trocarChave(p, antigo, cpfNovo));
+        }
+        indicePorCpf = novo;
+    }
+
+    // setCpf num paciente do cadastro: só a entrada dele muda de chave (CPF antigo -> novo).
+    // CPF novo que já é de OUTRO paciente: recusa antes de mexer no índice (e o setCpf não troca)
+    private synchronized void trocarChave(Paciente p, String antigo, String novo) {
+        Paciente dono = indicePorCpf.get(normalizarCpf(novo));
+        if (dono != null && dono != p) throw new IllegalArgumentException("CPF já cadastrado: " + novo);
+
+        String chaveAntiga = normalizarCpf(antigo);
+        if (indicePorCpf.remove(chaveAntiga, p)) {
+            // CSV antigo com CPF repetido: o próximo da lista com esse CPF assume a chave
+            for (Paciente outro : pacientes) {
+                if (outro != p && normalizarCpf(outro.getCpf()).equals(chaveAntiga)) {
+                    indicePorCpf.putIfAbsent(chaveAntiga, outro);
+                    break;
+                }
+            }
+        }
+        indicePorCpf.putIfAbsent(normalizarCpf(novo), p);
+        alterados.add(p); // a linha dele muda na próxima gravação
     }
 }
\ No newline at end of file
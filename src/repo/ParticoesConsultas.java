@@ -0,0 +1,292 @@
+// ParticoesConsultas.java — snapshot de consultas dividido por MÊS (um arquivo por mês),
+// com um catálogo dizendo quais meses existem. Relatórios com período e a compactação
+// só mexem nos meses que interessam; meses antigos podem ser arquivados comprimidos.
+
+package repo;
+
+import model.Consulta;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ParticoesConsultas
+ *
+ * Estrutura (para "data/consultas.csv"):
+ *   data/consultas/catalogo.csv      periodo;arquivo;quantidade
+ *   data/consultas/2025-10.csv       mesmo formato do consultas.csv (com cabeçalho)
+ *   data/consultas/2024-01.csv.gz    mês arquivado (mesmo conteúdo, comprimido com gzip)
+ *
+ * Cada mês só é regravado se o conteúdo dele mudou desde a última leitura/gravação:
+ * - o ConsultaRepo marca o mês de toda consulta tocada por um evento do journal (marcarAlterado);
+ * - e, para o que mudar por outro caminho, comparamos o SHA-256 das linhas do mês
+ *   (um hash de 32 bits podia colidir, o mês não era regravado e a compactação perdia o evento).
+ *
+ * Ordem das gravações (uma queda em qualquer ponto deixa um conjunto consistente):
+ * 1) cada mês vai para um .tmp (com fsync) e é renomeado por cima do arquivo dele;
+ * 2) o catálogo novo é gravado do mesmo jeito;
+ * 3) só então saem os arquivos que o catálogo não cita mais (meses vazios, .csv já arquivados).
+ *
+ * Ligado com -Dhospital.particionarConsultas=true. A compactação arquiva (gzip) os meses com
+ * mais de -Dhospital.mesesSemArquivar meses (padrão 12; 0 = nunca arquiva).
+ */
+final class ParticoesConsultas {
+
+    private static final String CABECALHO_CATALOGO = "periodo;arquivo;quantidade";
+
+    private final String pasta;          // ex.: "data/consultas"
+    private final String caminhoCatalogo;
+    private final String cabecalho;      // cabeçalho dos arquivos de mês
+
+    // catálogo em memória (ordenado por mês) e SHA-256 do conteúdo de cada mês no disco
+    private final TreeMap<YearMonth, String> arquivoPorMes = new TreeMap<>();
+    private final Map<YearMonth, Integer> quantidadePorMes = new HashMap<>();
+    private final Map<YearMonth, byte[]> hashPorMes = new HashMap<>();
+    private final Set<YearMonth> mesesAlterados = new HashSet<>(); // regravados na próxima gravar(), sem comparar
+    private String assinaturaCatalogo;   // para perceber se alguém trocou o catálogo por fora
+
+    ParticoesConsultas(String caminhoBase, String cabecalho) {
+        this.pasta = CSVUtil.trocarExtensao(caminhoBase, "");
+        this.caminhoCatalogo = pasta + "/catalogo.csv";
+        this.cabecalho = cabecalho;
+    }
+
+    static boolean habilitado() {
+        return Boolean.getBoolean("hospital.particionarConsultas");
+    }
+
+    // Meses ANTES deste vão para .gz na compactação (null = não arquivar)
+    static YearMonth limiteParaArquivar() {
+        int meses = Integer.getInteger("hospital.mesesSemArquivar", 12);
+        return (meses <= 0) ? null : YearMonth.now().minusMonths(meses);
+    }
+
+    static YearMonth mesDe(Consulta c) {
+        return YearMonth.from(c.getDataHora());
+    }
+
+    // Arquivos que compõem o snapshot agora (para a assinatura de mudança)
+    List<String> arquivos() throws IOException {
+        lerCatalogoSeMudou();
+        List<String> lista = new ArrayList<>();
+        lista.add(caminhoCatalogo);
+        for (String nome : arquivoPorMes.values()) lista.add(pasta + "/" + nome);
+        return lista;
+    }
+
+    // Lê os meses entre 'de' e 'ate' (inclusive; null = sem limite), em ordem cronológica
+    <T> List<T> carregar(YearMonth de, YearMonth ate, Function<LinhaCSV, T> conversor) throws IOException {
+        lerCatalogoSeMudou();
+        NavigableMap<YearMonth, String> meses = arquivoPorMes;
+        if (de != null)  meses = meses.tailMap(de, true);
+        if (ate != null) meses = meses.headMap(ate, true);
+
+        List<T> lidas = new ArrayList<>();
+        for (String nome : meses.values()) {
+            String caminho = pasta + "/" + nome;
+            if (nome.endsWith(".gz")) {
+                try (Reader in = new InputStreamReader(
+                        new GZIPInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(caminho)))),
+                        StandardCharsets.UTF_8)) {
+                    CSVUtil.percorrerRegistros(in, "id;", linha -> {
+                        T t = conversor.apply(linha);
+                        if (t != null) lidas.add(t);
+                    });
+                }
+            } else {
+                lidas.addAll(CSVUtil.lerRegistros(caminho, "id;", conversor)); // mês grande: em paralelo
+            }
+        }
+        return lidas;
+    }
+
+    // Depois de uma carga COMPLETA: guarda o hash de cada mês, para a próxima gravação
+    // saber quais meses realmente mudaram
+    // (os eventos do journal reaplicados depois marcam de novo os meses que tocarem)
+    void lembrar(List<Consulta> todas, Function<Consulta, String> formatar) {
+        hashPorMes.clear();
+        hashPorMes.putAll(hashes(agrupar(todas, formatar)));
+        mesesAlterados.clear();
+    }
+
+    // Um evento (agendar/concluir/cancelar) mexeu numa consulta deste mês
+    void marcarAlterado(YearMonth mes) {
+        mesesAlterados.add(mes);
+    }
+
+    // Grava o snapshot completo: só os meses alterados + o catálogo. Devolve quantos meses foram gravados.
+    int gravar(List<Consulta> todas, Function<Consulta, String> formatar) throws IOException {
+        lerCatalogoSeMudou();
+        Map<YearMonth, List<String>> porMes = agrupar(todas, formatar);
+        Map<YearMonth, byte[]> novosHashes = hashes(porMes);
+        Files.createDirectories(Paths.get(pasta));
+
+        // 1) meses alterados: cada um substituído inteiro (temporário + rename)
+        int gravados = 0;
+        for (Map.Entry<YearMonth, List<String>> e : porMes.entrySet()) {
+            YearMonth mes = e.getKey();
+            String nome = arquivoPorMes.get(mes);
+            boolean existe = nome != null && Files.exists(Paths.get(pasta + "/" + nome));
+            boolean limpo = existe && !mesesAlterados.contains(mes)
+                    && MessageDigest.isEqual(novosHashes.get(mes), hashPorMes.get(mes));
+            if (limpo) continue;
+
+            List<String> linhas = new ArrayList<>(e.getValue().size() + 1);
+            linhas.add(cabecalho);
+            linhas.addAll(e.getValue());
+            if (nome != null && nome.endsWith(".gz")) {
+                escreverComprimido(pasta + "/" + nome, linhas); // mês arquivado continua arquivado
+            } else {
+                nome = mes + ".csv";
+                CSVUtil.substituirAtomicamente(pasta + "/" + nome, linhas);
+            }
+            arquivoPorMes.put(mes, nome);
+            gravados++;
+        }
+
+        // meses que ficaram vazios saem do catálogo (os arquivos, só depois dele gravado)
+        List<String> sobrando = new ArrayList<>();
+        for (Iterator<Map.Entry<YearMonth, String>> it = arquivoPorMes.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<YearMonth, String> e = it.next();
+            if (!porMes.containsKey(e.getKey())) {
+                sobrando.add(e.getValue());
+                it.remove();
+            }
+        }
+
+        // 2) catálogo
+        quantidadePorMes.clear();
+        porMes.forEach((mes, linhas) -> quantidadePorMes.put(mes, linhas.size()));
+        hashPorMes.clear();
+        hashPorMes.putAll(novosHashes);
+        mesesAlterados.clear();
+        gravarCatalogo();
+
+        // 3) arquivos que o catálogo não cita mais
+        apagar(sobrando);
+        return gravados;
+    }
+
+    // Comprime (gzip) os meses ANTERIORES a 'limite'; devolve quantos foram arquivados
+    int arquivarAntesDe(YearMonth limite) throws IOException {
+        lerCatalogoSeMudou();
+        List<String> originais = new ArrayList<>();
+        for (Map.Entry<YearMonth, String> e : arquivoPorMes.headMap(limite, false).entrySet()) {
+            String nome = e.getValue();
+            if (nome.endsWith(".gz")) continue;
+
+            Path origem = Paths.get(pasta + "/" + nome);
+            gravarComprimido(pasta + "/" + nome + ".gz", out -> {
+                try (InputStream in = Files.newInputStream(origem)) { in.transferTo(out); }
+            });
+            e.setValue(nome + ".gz");
+            originais.add(nome);
+        }
+        if (!originais.isEmpty()) {
+            gravarCatalogo(); // catálogo já aponta para os .gz...
+            apagar(originais); // ...só então apaga os .csv
+        }
+        return originais.size();
+    }
+
+    // ===== helpers =====
+
+    private Map<YearMonth, List<String>> agrupar(List<Consulta> todas, Function<Consulta, String> formatar) {
+        Map<YearMonth, List<String>> porMes = new TreeMap<>();
+        for (Consulta c : todas) porMes.computeIfAbsent(mesDe(c), k -> new ArrayList<>()).add(formatar.apply(c));
+        return porMes;
+    }
+
+    private static Map<YearMonth, byte[]> hashes(Map<YearMonth, List<String>> porMes) {
+        Map<YearMonth, byte[]> h = new HashMap<>();
+        porMes.forEach((mes, linhas) -> h.put(mes, sha256(linhas)));
+        return h;
+    }
+
+    // SHA-256 das linhas (cada uma terminada em '\n', para "ab","c" != "a","bc")
+    private static byte[] sha256(List<String> linhas) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e); // toda JVM tem
+        }
+        for (String l : linhas) {
+            md.update(l.getBytes(StandardCharsets.UTF_8));
+            md.update((byte) '\n');
+        }
+        return md.digest();
+    }
+
+    private void lerCatalogoSeMudou() throws IOException {
+        String assinatura = CSVUtil.assinatura(caminhoCatalogo);
+        if (assinatura.equals(assinaturaCatalogo)) return;
+
+        arquivoPorMes.clear();
+        quantidadePorMes.clear();
+        hashPorMes.clear(); // catálogo trocado por fora: não confiamos mais nos hashes
+        CSVUtil.percorrerRegistros(caminhoCatalogo, "periodo;", linha -> {
+            if (linha.tamanho() < 2) return;
+            try {
+                YearMonth mes = YearMonth.parse(linha.campo(0));
+                arquivoPorMes.put(mes, linha.campo(1));
+                if (linha.tamanho() > 2) quantidadePorMes.put(mes, linha.campoInt(2));
+            } catch (RuntimeException e) {
+                // linha inválida no catálogo: ignora
+            }
+        });
+        assinaturaCatalogo = assinatura;
+    }
+
+    private void gravarCatalogo() throws IOException {
+        List<String> linhas = new ArrayList<>();
+        linhas.add(CABECALHO_CATALOGO);
+        for (Map.Entry<YearMonth, String> e : arquivoPorMes.entrySet()) {
+            linhas.add(CSVUtil.juntarCampos(List.of(
+                e.getKey().toString(),
+                e.getValue(),
+                String.valueOf(quantidadePorMes.getOrDefault(e.getKey(), 0))
+            )));
+        }
+        CSVUtil.substituirAtomicamente(caminhoCatalogo, linhas);
+        assinaturaCatalogo = CSVUtil.assinatura(caminhoCatalogo);
+    }
+
+    private void apagar(List<String> nomes) throws IOException {
+        for (String nome : nomes) Files.deleteIfExists(Paths.get(pasta + "/" + nome));
+    }
+
+    private interface Conteudo { void escrever(OutputStream out) throws IOException; }
+
+    private static void escreverComprimido(String caminho, List<String> linhas) throws IOException {
+        gravarComprimido(caminho, out -> {
+            Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            for (String l : linhas) w.write(l + System.lineSeparator());
+            w.flush();
+        });
+    }
+
+    // .gz pelo mesmo caminho do CSVUtil.substituirAtomicamente: temporário + fsync + rename
+    private static void gravarComprimido(String caminho, Conteudo conteudo) throws IOException {
+        Path temporario = Paths.get(caminho + ".tmp");
+        try (FileChannel ch = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            GZIPOutputStream gz = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(ch)));
+            conteudo.escrever(gz);
+            gz.finish();
+            gz.flush();
+            ch.force(false);
+        }
+        Files.move(temporario, Paths.get(caminho), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,16 @@
+// ResultadoImportacao.java — resumo de uma importação em massa (PacienteRepo / MedicoRepo).
+// Cada linha recusada vira um texto "registro N: motivo | conteúdo", para a clínica corrigir e reenviar.
+
+package repo;
+
+import java.util.List;
+
+public record ResultadoImportacao(int lidos, int importados, List<String> rejeitados) {
+
+    public int quantidadeRejeitados() { return rejeitados.size(); }
+
+    @Override
+    public String toString() {
+        return "lidos=" + lidos + " importados=" + importados + " rejeitados=" + rejeitados.size();
+    }
+}
@@ -0,0 +1,363 @@
+// SnapshotBinario.java — cópia binária e compacta dos CSVs, para a partida ser mais rápida.
+// O CSV continua sendo o formato "oficial" (legível, fácil de editar/trocar);
+// o .bin é só um atalho: é gravado junto com o CSV e só é usado se for mais novo que ele.
+// Por ser só um atalho, falhar ao gravá-lo nunca derruba quem chamou (ver gravarCache).
+
+package repo;
+
+import model.*;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * SnapshotBinario
+ *
+ * Formato (DataOutputStream, big-endian):
+ * - cabeçalho: MAGIC (int), tipo (byte), VERSAO (byte)
+ * - textos: tamanho em bytes (int) + UTF-8 (sem o limite de 64 KB do writeUTF)
+ * - pacientes:  n; [cpf, nome, idade, plano(byte)]
+ * - médicos:    n; [crm, nome, cpf, idade, especialidade(byte), custoBase(double)]
+ * - consultas:  dicionários de CPF, CRM e local (cada texto gravado uma vez só);
+ *               n; [id, idxCpf, idxCrm, idxLocal, dataHora(minutos desde 1970, long),
+ *                   status(byte), diagnostico, prescricao, precoFinal(double)]
+ *
+ * Valores em dinheiro vão como double (o mesmo valor do CSV, sem arredondar): carregar do
+ * .bin ou do CSV dá sempre o mesmo resultado.
+ * Qualquer problema na leitura (arquivo cortado, índice fora do dicionário, valor inválido)
+ * vira IOException, e quem chama volta para o CSV.
+ * Qualquer problema na GRAVAÇÃO vira só um aviso: o .bin incompleto é apagado e o CSV segue valendo.
+ *
+ * Desligado por padrão; ligar com -Dhospital.snapshotBinario=true.
+ */
+final class SnapshotBinario {
+
+    private static final int  MAGIC  = 0x48535031; // "HSP1"
+    private static final byte VERSAO = 3; // 2: dinheiro em double (a 1 gravava centavos); 3: textos sem limite de tamanho
+
+    // a quantidade vem do arquivo: não reservamos memória demais antes de ler os registros
+    // (um número enorme num .bin estragado acaba em EOFException, não em falta de memória)
+    private static final int CAPACIDADE_INICIAL = 1 << 16;
+
+    private static final byte TIPO_PACIENTES = 1;
+    private static final byte TIPO_MEDICOS   = 2;
+    private static final byte TIPO_CONSULTAS = 3;
+
+    // planos em 1 byte
+    private static final byte PLANO_NENHUM   = 0;
+    private static final byte PLANO_BASICO   = 1;
+    private static final byte PLANO_PLUS     = 2;
+    private static final byte PLANO_ESPECIAL = 3;
+
+    private SnapshotBinario() {}
+
+    static boolean habilitado() {
+        return Boolean.getBoolean("hospital.snapshotBinario");
+    }
+
+    // O .bin só vale se existir e NÃO for mais velho que o CSV
+    // (se alguém editar o CSV à mão, o CSV passa a ser mais novo e volta a mandar)
+    static boolean maisNovoQue(String caminhoBin, String caminhoCsv) {
+        try {
+            Path bin = Paths.get(caminhoBin);
+            Path csv = Paths.get(caminhoCsv);
+            if (!Files.exists(bin)) return false;
+            if (!Files.exists(csv)) return true;
+            return Files.getLastModifiedTime(bin).compareTo(Files.getLastModifiedTime(csv)) >= 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // ===== PACIENTES =====
+
+    static void salvarPacientes(String caminho, List<Paciente> pacientes) {
+        gravarCache(caminho, TIPO_PACIENTES, out -> {
+            out.writeInt(pacientes.size());
+            for (Paciente p : pacientes) {
+                escreverTexto(out, p.getCpf());
+                escreverTexto(out, p.getNome());
+                out.writeInt(p.getIdade());
+                out.writeByte(codigoPlano(p.getPlano()));
+            }
+        });
+    }
+
+    static List<Paciente> carregarPacientes(String caminho) throws IOException {
+        try (DataInputStream in = abrirLeitura(caminho, TIPO_PACIENTES)) {
+            int n = lerQuantidade(in);
+            List<Paciente> lista = new ArrayList<>(Math.min(n, CAPACIDADE_INICIAL));
+            for (int k = 0; k < n; k++) {
+                String cpf  = lerTexto(in);
+                String nome = lerTexto(in);
+                int idade   = in.readInt();
+                Paciente p = new Paciente(nome, cpf, idade);
+                p.setPlano(planoDoCodigo(in.readByte()));
+                lista.add(p);
+            }
+            return lista;
+        } catch (RuntimeException e) {
+            throw corrompido(caminho, e); // ex.: nome/CPF vazio recusado pelo modelo
+        }
+    }
+
+    // ===== MÉDICOS =====
+
+    static void salvarMedicos(String caminho, List<Medico> medicos) {
+        gravarCache(caminho, TIPO_MEDICOS, out -> {
+            out.writeInt(medicos.size());
+            for (Medico m : medicos) {
+                escreverTexto(out, m.getCrm());
+                escreverTexto(out, m.getNome());
+                escreverTexto(out, m.getCpf());
+                out.writeInt(m.getIdade());
+                out.writeByte(m.getEspecialidade().ordinal());
+                out.writeDouble(m.getCustoBaseConsulta());
+            }
+        });
+    }
+
+    static List<Medico> carregarMedicos(String caminho) throws IOException {
+        Especialidade[] especialidades = Especialidade.values();
+        try (DataInputStream in = abrirLeitura(caminho, TIPO_MEDICOS)) {
+            int n = lerQuantidade(in);
+            List<Medico> lista = new ArrayList<>(Math.min(n, CAPACIDADE_INICIAL));
+            for (int k = 0; k < n; k++) {
+                String crm  = lerTexto(in);
+                String nome = lerTexto(in);
+                String cpf  = lerTexto(in);
+                int idade   = in.readInt();
+                Especialidade esp = especialidades[lerIndice(in.readByte(), especialidades.length)];
+                double custo = in.readDouble();
+                lista.add(new Medico(nome, cpf, idade, crm, esp, custo));
+            }
+            return lista;
+        } catch (RuntimeException e) {
+            throw corrompido(caminho, e);
+        }
+    }
+
+    // ===== CONSULTAS =====
+
+    // Devolve false (e não grava) se alguma data tiver segundos: o formato guarda só minutos
+    static boolean salvarConsultas(String caminho, List<Consulta> consultas) {
+        for (Consulta c : consultas) {
+            if (c.getDataHora().getSecond() != 0 || c.getDataHora().getNano() != 0) {
+                apagarCache(caminho); // evita ficar um .bin velho "mais novo"
+                return false;
+            }
+        }
+
+        // dicionários: cada CPF/CRM/local vira um índice
+        Map<String, Integer> cpfs = new LinkedHashMap<>();
+        Map<String, Integer> crms = new LinkedHashMap<>();
+        Map<String, Integer> locais = new LinkedHashMap<>();
+        for (Consulta c : consultas) {
+            cpfs.putIfAbsent(c.getPaciente().getCpf(), cpfs.size());
+            crms.putIfAbsent(c.getMedico().getCrm(), crms.size());
+            locais.putIfAbsent(c.getLocal(), locais.size());
+        }
+
+        return gravarCache(caminho, TIPO_CONSULTAS, out -> {
+            escreverDicionario(out, cpfs.keySet());
+            escreverDicionario(out, crms.keySet());
+            escreverDicionario(out, locais.keySet());
+
+            out.writeInt(consultas.size());
+            for (Consulta c : consultas) {
+                escreverTexto(out, c.getId());
+                out.writeInt(cpfs.get(c.getPaciente().getCpf()));
+                out.writeInt(crms.get(c.getMedico().getCrm()));
+                out.writeInt(locais.get(c.getLocal()));
+                out.writeLong(c.getDataHora().toEpochSecond(ZoneOffset.UTC) / 60);
+                out.writeByte(c.getStatus().ordinal());
+                escreverTexto(out, c.getDiagnostico() == null ? "" : c.getDiagnostico());
+                escreverTexto(out, c.getPrescricao()  == null ? "" : c.getPrescricao());
+                out.writeDouble(c.getPrecoFinal());
+            }
+        });
+    }
+
+    // uma consulta como está no .bin (ainda sem mexer no identity map)
+    private record ConsultaLida(String id, Paciente p, Medico m, String local, LocalDateTime dh,
+                                StatusConsulta st, String diag, String presc, double preco) {}
+
+    // Paciente/médico são resolvidos UMA vez por entrada do dicionário (não por linha).
+    // O arquivo é lido INTEIRO antes de criar/alterar consultas: um .bin cortado no meio
+    // não deixa instâncias do identity map concluídas/canceladas pela metade.
+    // Consultas cujo paciente/médico não existe mais são puladas (mesma regra do CSV).
+    // 'jaCarregada' devolve a instância existente de um id (identity map) ou null.
+    // 'comum' troca diagnóstico/prescrição repetidos por uma instância compartilhada.
+    static List<Consulta> carregarConsultas(String caminho,
+                                            Function<String, Optional<Paciente>> buscarPaciente,
+                                            Function<String, Optional<Medico>> buscarMedico,
+                                            Function<String, Consulta> jaCarregada,
+                                            UnaryOperator<String> comum) throws IOException {
+        StatusConsulta[] status = StatusConsulta.values();
+        try (DataInputStream in = abrirLeitura(caminho, TIPO_CONSULTAS)) {
+            String[] cpfs   = lerDicionario(in);
+            String[] crms   = lerDicionario(in);
+            String[] locais = lerDicionario(in);
+
+            Paciente[] pacientes = new Paciente[cpfs.length];
+            for (int k = 0; k < cpfs.length; k++) pacientes[k] = buscarPaciente.apply(cpfs[k]).orElse(null);
+            Medico[] medicos = new Medico[crms.length];
+            for (int k = 0; k < crms.length; k++) medicos[k] = buscarMedico.apply(crms[k]).orElse(null);
+
+            int n = lerQuantidade(in);
+            List<ConsultaLida> lidas = new ArrayList<>(Math.min(n, CAPACIDADE_INICIAL));
+            for (int k = 0; k < n; k++) {
+                String id      = lerTexto(in);
+                Paciente p     = pacientes[lerIndice(in.readInt(), pacientes.length)];
+                Medico m       = medicos[lerIndice(in.readInt(), medicos.length)];
+                String local   = locais[lerIndice(in.readInt(), locais.length)];
+                LocalDateTime dh = LocalDateTime.ofEpochSecond(in.readLong() * 60, 0, ZoneOffset.UTC);
+                StatusConsulta st = status[lerIndice(in.readByte(), status.length)];
+                String diag    = comum.apply(lerTexto(in));
+                String presc   = comum.apply(lerTexto(in));
+                double preco   = in.readDouble();
+
+                if (p == null || m == null) continue;
+                lidas.add(new ConsultaLida(id, p, m, local, dh, st, diag, presc, preco));
+            }
+
+            // validação das consultas novas antes de mexer nas existentes
+            List<Consulta> lista = new ArrayList<>(lidas.size());
+            for (ConsultaLida l : lidas) {
+                Consulta c = jaCarregada.apply(l.id());
+                lista.add((c != null) ? c : new Consulta(l.id(), l.p(), l.m(), l.dh(), l.local(), l.preco()));
+            }
+            for (int k = 0; k < lista.size(); k++) {
+                Consulta c = lista.get(k);
+                StatusConsulta st = lidas.get(k).st();
+                if (c.getStatus() == StatusConsulta.AGENDADA) {
+                    if (st == StatusConsulta.CONCLUIDA) c.concluir(lidas.get(k).diag(), lidas.get(k).presc());
+                    else if (st == StatusConsulta.CANCELADA) c.cancelar();
+                }
+            }
+            return lista;
+        } catch (RuntimeException e) {
+            throw corrompido(caminho, e); // ex.: data fora do intervalo, id vazio
+        }
+    }
+
+    // ===== helpers =====
+
+    private interface Escrita { void escrever(DataOutputStream out) throws IOException; }
+
+    // O .bin é só um cache: se a gravação falhar (disco cheio, sem permissão, ...) avisamos,
+    // apagamos o que sobrou e seguimos; quem chamou (inclusive uma carga) continua com o CSV.
+    // Grava num .tmp e só troca pelo .bin no final: nunca fica um .bin pela metade "mais novo" que o CSV.
+    private static boolean gravarCache(String caminho, byte tipo, Escrita escrita) {
+        Path path = Paths.get(caminho);
+        Path tmp = Paths.get(caminho + ".tmp");
+        try {
+            Path parent = path.getParent();
+            if (parent != null && !Files.exists(parent)) Files.createDirectories(parent);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeByte(tipo);
+                out.writeByte(VERSAO);
+                escrita.escrever(out);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Aviso: cópia binária não gravada (" + caminho + "): " + e.getMessage());
+            apagarCache(tmp.toString());
+            apagarCache(caminho); // um .bin antigo poderia ficar "mais novo" que o CSV recém-gravado
+            return false;
+        }
+    }
+
+    private static void apagarCache(String caminho) {
+        try {
+            Files.deleteIfExists(Paths.get(caminho));
+        } catch (IOException e) {
+            System.err.println("Aviso: não foi possível apagar " + caminho + ": " + e.getMessage());
+        }
+    }
+
+    // tamanho em bytes + UTF-8 (o writeUTF só aceita até 65535 bytes: um diagnóstico longo estourava)
+    private static void escreverTexto(DataOutputStream out, String texto) throws IOException {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // readNBytes lê em pedaços: um tamanho absurdo num .bin estragado acaba em EOF, não em falta de memória
+    private static String lerTexto(DataInputStream in) throws IOException {
+        int n = lerQuantidade(in);
+        byte[] bytes = in.readNBytes(n);
+        if (bytes.length != n) throw new EOFException("Texto cortado no snapshot binário");
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                .decode(ByteBuffer.wrap(bytes)).toString();
+    }
+
+    private static DataInputStream abrirLeitura(String caminho, byte tipo) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(caminho))));
+        if (in.readInt() != MAGIC || in.readByte() != tipo || in.readByte() != VERSAO) {
+            in.close();
+            throw new IOException("Snapshot binário inválido ou de outra versão: " + caminho);
+        }
+        return in;
+    }
+
+    private static void escreverDicionario(DataOutputStream out, Collection<String> valores) throws IOException {
+        out.writeInt(valores.size());
+        for (String v : valores) escreverTexto(out, v);
+    }
+
+    private static String[] lerDicionario(DataInputStream in) throws IOException {
+        int n = lerQuantidade(in);
+        List<String> valores = new ArrayList<>(Math.min(n, CAPACIDADE_INICIAL));
+        for (int k = 0; k < n; k++) valores.add(lerTexto(in));
+        return valores.toArray(new String[0]);
+    }
+
+    // quantidade gravada antes de uma lista; negativa só se o arquivo estiver estragado
+    private static int lerQuantidade(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        if (n < 0) throw new IOException("Quantidade inválida no snapshot binário: " + n);
+        return n;
+    }
+
+    // índice lido do arquivo, conferido contra o tamanho do array em que vai ser usado
+    private static int lerIndice(int indice, int tamanho) throws IOException {
+        if (indice < 0 || indice >= tamanho) {
+            throw new IOException("Índice fora do intervalo no snapshot binário: " + indice + " (tamanho " + tamanho + ")");
+        }
+        return indice;
+    }
+
+    private static IOException corrompido(String caminho, RuntimeException causa) {
+        return new IOException("Snapshot binário corrompido: " + caminho, causa);
+    }
+
+    private static byte codigoPlano(PlanoSaude plano) {
+        if (plano instanceof PlanoBasico)   return PLANO_BASICO;
+        if (plano instanceof PlanoPlus)     return PLANO_PLUS;
+        if (plano instanceof PlanoEspecial) return PLANO_ESPECIAL;
+        return PLANO_NENHUM;
+    }
+
+    private static PlanoSaude planoDoCodigo(byte codigo) {
+        return switch (codigo) {
+            case PLANO_BASICO   -> new PlanoBasico();
+            case PLANO_PLUS     -> new PlanoPlus();
+            case PLANO_ESPECIAL -> new PlanoEspecial();
+            default             -> null;
+        };
+    }
+}
@@ -0,0 +1,176 @@
+// TotaisFinanceiros.java — receita, quantidades e economia já somadas por DIA e por MÊS
+// (e, dentro de cada dia/mês, por médico, especialidade, plano e local), atualizadas a cada evento.
+// Um painel financeiro soma alguns baldes em vez de reprocessar o histórico inteiro.
+
+package repo;
+
+import model.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * TotaisFinanceiros
+ *
+ * Cada registro (consulta ou internação) CONTRIBUI para um balde (dia, médico, especialidade,
+ * plano, local); o local de uma internação é o quarto:
+ * - consulta:   conta como agendada/concluída/cancelada no dia da consulta; se CONCLUÍDA,
+ *               soma o preço final na receita e (custo base - preço) na economia;
+ * - internação: só depois da alta, no dia da alta: receita = calcularCustoTotal(),
+ *               economia = dias * custoBaseDia - valor cobrado (mesma conta de estatisticaPlanos).
+ *
+ * Guardamos a contribuição de cada id. Quando o registro muda (concluir, cancelar, alta,
+ * recarga...), a contribuição antiga é subtraída e a nova somada: cada evento custa O(1).
+ * O mesmo valor entra no balde do dia e no balde do mês: uma consulta por período usa os
+ * meses inteiros e só os dias das pontas.
+ *
+ * Valores em centavos (long), para as somas não acumularem erro de arredondamento.
+ * Usado pelos repositórios sempre com a trava deles (ConsultaRepo.totais / InternacaoRepo.totais).
+ */
+public final class TotaisFinanceiros {
+
+    public enum Agrupamento { DIA, MES, MEDICO, ESPECIALIDADE, PLANO, LOCAL }
+
+    public static final String SEM_PLANO = "Sem plano";
+
+    public record Totais(long consultasAgendadas, long consultasConcluidas, long consultasCanceladas,
+                         long internacoesComAlta, long receitaCentavos, long economiaCentavos) {
+
+        public static final Totais ZERO = new Totais(0, 0, 0, 0, 0, 0);
+
+        public Totais somar(Totais o) {
+            return new Totais(consultasAgendadas + o.consultasAgendadas,
+                              consultasConcluidas + o.consultasConcluidas,
+                              consultasCanceladas + o.consultasCanceladas,
+                              internacoesComAlta + o.internacoesComAlta,
+                              receitaCentavos + o.receitaCentavos,
+                              economiaCentavos + o.economiaCentavos);
+        }
+
+        Totais negativo() {
+            return new Totais(-consultasAgendadas, -consultasConcluidas, -consultasCanceladas,
+                              -internacoesComAlta, -receitaCentavos, -economiaCentavos);
+        }
+
+        public double receita()  { return receitaCentavos / 100.0; }
+        public double economia() { return economiaCentavos / 100.0; }
+    }
+
+    // dentro de um dia/mês: um balde por (médico, especialidade, plano, local)
+    private record Chave(String crm, Especialidade especialidade, String plano, String local) {}
+
+    // o que um registro somou (para poder desfazer exatamente)
+    private record Contribuicao(LocalDate dia, Chave chave, Totais valores) {}
+
+    private final Map<String, Contribuicao> porId = new HashMap<>();
+    private final TreeMap<LocalDate, Map<Chave, Totais>> porDia = new TreeMap<>();
+    private final TreeMap<YearMonth, Map<Chave, Totais>> porMes = new TreeMap<>();
+
+    // ===== atualização =====
+
+    void registrarConsulta(Consulta c) {
+        long preco = ColunasConsultas.centavosDe(c.getPrecoFinal());
+        Totais v = switch (c.getStatus()) {
+            case AGENDADA  -> new Totais(1, 0, 0, 0, 0, 0);
+            case CANCELADA -> new Totais(0, 0, 1, 0, 0, 0);
+            case CONCLUIDA -> new Totais(0, 1, 0, 0, preco,
+                    Math.max(0, ColunasConsultas.centavosDe(c.getMedico().getCustoBaseConsulta()) - preco));
+        };
+        trocar(c.getId(), new Contribuicao(c.getDataHora().toLocalDate(),
+                                           chave(c.getMedico(), c.getPaciente(), c.getLocal()), v));
+    }
+
+    void registrarInternacao(Internacao i) {
+        if (i.getSaida() == null) { // ainda internado: não conta (ou deixou de contar)
+            trocar(i.getId(), null);
+            return;
+        }
+        long dias = Math.max(1, Duration.between(i.getEntrada(), i.getSaida()).toDays());
+        long baseline = ColunasConsultas.centavosDe(dias * i.getCustoBaseDia());
+        long cobrado  = ColunasConsultas.centavosDe(i.calcularCustoTotal());
+        Totais v = new Totais(0, 0, 0, 1, cobrado, Math.max(0, baseline - cobrado));
+        trocar(i.getId(), new Contribuicao(i.getSaida().toLocalDate(),
+                                           chave(i.getMedicoResponsavel(), i.getPaciente(), i.getQuarto()), v));
+    }
+
+    // registro que sumiu (ex.: internação cancelada)
+    void remover(String id) {
+        trocar(id, null);
+    }
+
+    Set<String> ids() {
+        return porId.keySet();
+    }
+
+    private static Chave chave(Medico m, Paciente p, String local) {
+        return new Chave(m.getCrm(), m.getEspecialidade(),
+                         (p.getPlano() == null) ? SEM_PLANO : p.getPlano().toString(), local);
+    }
+
+    private void trocar(String id, Contribuicao nova) {
+        Contribuicao antiga = (nova == null) ? porId.remove(id) : porId.put(id, nova);
+        if (Objects.equals(antiga, nova)) return;
+        if (antiga != null) aplicar(antiga.dia(), antiga.chave(), antiga.valores().negativo());
+        if (nova != null)   aplicar(nova.dia(), nova.chave(), nova.valores());
+    }
+
+    private void aplicar(LocalDate dia, Chave chave, Totais delta) {
+        somarNoBalde(porDia.computeIfAbsent(dia, k -> new HashMap<>()), chave, delta);
+        somarNoBalde(porMes.computeIfAbsent(YearMonth.from(dia), k -> new HashMap<>()), chave, delta);
+    }
+
+    private static void somarNoBalde(Map<Chave, Totais> balde, Chave chave, Totais delta) {
+        Totais t = balde.getOrDefault(chave, Totais.ZERO).somar(delta);
+        if (t.equals(Totais.ZERO)) balde.remove(chave); // balde vazio não ocupa memória
+        else balde.put(chave, t);
+    }
+
+    // ===== consulta =====
+
+    // Totais de [inicio, fim] (datas inclusivas; null = sem limite), agrupados.
+    // Chaves: DIA "aaaa-MM-dd", MES "aaaa-MM", MEDICO = CRM, ESPECIALIDADE = Especialidade.name(),
+    // PLANO = nome do plano (ou SEM_PLANO), LOCAL = local da consulta / quarto da internação.
+    SortedMap<String, Totais> somar(LocalDate inicio, LocalDate fim, Agrupamento por) {
+        SortedMap<String, Totais> resultado = new TreeMap<>();
+        if (porDia.isEmpty()) return resultado;
+        LocalDate de  = (inicio == null) ? porDia.firstKey() : inicio;
+        LocalDate ate = (fim == null)    ? porDia.lastKey()  : fim;
+        if (de.isAfter(ate)) return resultado;
+
+        YearMonth mes = YearMonth.from(de), ultimo = YearMonth.from(ate);
+        while (!mes.isAfter(ultimo)) {
+            LocalDate iniMes = mes.atDay(1), fimMes = mes.atEndOfMonth();
+            if (!iniMes.isBefore(de) && !fimMes.isAfter(ate) && por != Agrupamento.DIA) {
+                // mês inteiro dentro do período: usa o balde do mês
+                Map<Chave, Totais> balde = porMes.get(mes);
+                if (balde != null) juntar(resultado, mes.toString(), balde, por);
+            } else {
+                // ponta do período (ou agrupado por dia): só os dias que existem
+                LocalDate a = iniMes.isBefore(de) ? de : iniMes;
+                LocalDate b = fimMes.isAfter(ate) ? ate : fimMes;
+                for (Map.Entry<LocalDate, Map<Chave, Totais>> e : porDia.subMap(a, true, b, true).entrySet()) {
+                    String rotulo = (por == Agrupamento.DIA) ? e.getKey().toString() : mes.toString();
+                    juntar(resultado, rotulo, e.getValue(), por);
+                }
+            }
+            mes = mes.plusMonths(1);
+        }
+        return resultado;
+    }
+
+    private static void juntar(SortedMap<String, Totais> resultado, String periodo,
+                               Map<Chave, Totais> balde, Agrupamento por) {
+        for (Map.Entry<Chave, Totais> e : balde.entrySet()) {
+            String grupo = switch (por) {
+                case DIA, MES       -> periodo;
+                case MEDICO        -> e.getKey().crm();
+                case ESPECIALIDADE -> e.getKey().especialidade().name();
+                case PLANO         -> e.getKey().plano();
+                case LOCAL         -> e.getKey().local();
+            };
+            resultado.merge(grupo, e.getValue(), Totais::somar);
+        }
+    }
+}
@@ -1,40 +1,142 @@
 package service;
 
+import java.time.Duration;
 import java.time.LocalDateTime;               // Consulta, Paciente, Medico, StatusConsulta, etc.
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import model.*;
 import repo.ConsultaRepo;
 import repo.MedicoRepo;           // List, ArrayList, Collections
 import repo.PacienteRepo;
 
+// Pode ser usado por várias threads ao mesmo tempo (ex.: vários atendentes):
+// checar conflito + reservar o horário é atômico por MÉDICO e por LOCAL, usando travas
+// "listradas" (um conjunto fixo de travas; cada médico/local cai sempre na mesma).
+// Agendamentos de médicos e salas diferentes quase nunca disputam a mesma trava.
 public class AgendamentoService {
 
-    // consultas em memória (a persistência entra no Dia 4)
-    private final List<Consulta> consultas = new ArrayList<>();
+    // quantidade de travas (potência de 2); mais listras = menos colisão entre chaves diferentes
+    private static final int LISTRAS = 64;
+
+    // consultas em memória (espelho do snapshot + journal do ConsultaRepo)
+    private final List<Consulta> consultas = new ArrayList<>();              // protegida por synchronized(consultas)
+    private final Map<String, Consulta> porId = new ConcurrentHashMap<>();   // id -> consulta (concluir/cancelar em O(1))
 
     private final PacienteRepo pacienteRepo;
     private final MedicoRepo   medicoRepo;
     private final ConsultaRepo consultaRepo;
 
+    // duração padrão de uma consulta (usada na checagem de sobreposição)
+    public static final Duration DURACAO_PADRAO = Duration.ofMinutes(30);
+
+    // índices de horários ocupados (só consultas NÃO canceladas):
+    // uma Agenda por médico (CRM normalizado) e uma por local (nome em maiúsculas).
+    // Cada Agenda só é lida/alterada segurando a listra da sua chave.
+    private final Duration duracaoConsulta;
+    private final Map<String, Agenda> agendaPorMedico = new ConcurrentHashMap<>();
+    private final Map<String, Agenda> agendaPorLocal  = new ConcurrentHashMap<>();
+    private final ReentrantLock[] listras = new ReentrantLock[LISTRAS];
+
 
     public AgendamentoService(PacienteRepo pacienteRepo, MedicoRepo medicoRepo, ConsultaRepo consultaRepo) {
+        this(pacienteRepo, medicoRepo, consultaRepo, DURACAO_PADRAO);
+    }
+
+    public AgendamentoService(PacienteRepo pacienteRepo, MedicoRepo medicoRepo, ConsultaRepo consultaRepo,
+                              Duration duracaoConsulta) {
+        if (duracaoConsulta == null || duracaoConsulta.isNegative() || duracaoConsulta.isZero())
+            throw new IllegalArgumentException("Duração da consulta inválida");
         this.pacienteRepo = pacienteRepo;
         this.medicoRepo   = medicoRepo;
         this.consultaRepo = consultaRepo;
+        this.duracaoConsulta = duracaoConsulta;
+        for (int k = 0; k < LISTRAS; k++) listras[k] = new ReentrantLock();
+
+        // na partida: snapshot + replay do journal (mantém os ids salvos).
+        // Linhas ruins já são puladas pelo repositório; se nem assim der para ler os arquivos,
+        // o programa NÃO abre (como o InternacaoService): com a agenda vazia ele aceitaria
+        // consultas em horários já ocupados.
+        try {
+            consultas.addAll(consultaRepo.carregarTodos());
+        } catch (java.io.IOException e) {
+            throw new RuntimeException("Erro carregando consultas.csv", e);
+        }
+        for (Consulta c : consultas) {
+            porId.put(c.getId(), c);
+            if (c.getStatus() != StatusConsulta.CANCELADA) reservar(c);
+        }
+    }
+
+    // ---- índices de horários ----
+
+    private static String chaveMedico(String crm) {
+        return MedicoRepo.normalizarCrm(crm);
+    }
+
+    private static String chaveLocal(String local) {
+        return local.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private Agenda agendaDoMedico(String crm) {
+        return agendaPorMedico.computeIfAbsent(chaveMedico(crm), k -> new Agenda(duracaoConsulta));
+    }
+
+    private Agenda agendaDoLocal(String local) {
+        return agendaPorLocal.computeIfAbsent(chaveLocal(local), k -> new Agenda(duracaoConsulta));
     }
 
-    // salva o CSV sempre que a lista muda
-    private void salvar() {
+    private void reservar(Consulta c) {
+        agendaDoMedico(c.getMedico().getCrm()).reservar(c);
+        agendaDoLocal(c.getLocal()).reservar(c);
+    }
+
+    private void liberar(Consulta c) {
+        agendaDoMedico(c.getMedico().getCrm()).liberar(c);
+        agendaDoLocal(c.getLocal()).liberar(c);
+    }
+
+    // ---- travas listradas ----
+
+    // prefixos diferentes: o médico "X" e a sala "X" não caem juntos por acaso
+    private int listraDoMedico(String crm)  { return indiceListra("M|" + chaveMedico(crm)); }
+    private int listraDoLocal(String local) { return indiceListra("L|" + chaveLocal(local)); }
+
+    private static int indiceListra(String chave) {
+        int h = chave.hashCode();
+        return (h ^ (h >>> 16)) & (LISTRAS - 1);
+    }
+
+    // trava as duas listras SEMPRE na mesma ordem (menor índice primeiro) para não dar deadlock
+    private void travar(int a, int b) {
+        int primeira = Math.min(a, b), segunda = Math.max(a, b);
+        listras[primeira].lock();
+        if (segunda != primeira) listras[segunda].lock();
+    }
+
+    private void destravar(int a, int b) {
+        int primeira = Math.min(a, b), segunda = Math.max(a, b);
+        if (segunda != primeira) listras[segunda].unlock();
+        listras[primeira].unlock();
+    }
+
+    // registra UM evento no journal (append) em vez de reescrever o CSV inteiro
+    // (o ConsultaRepo serializa as escritas: linhas de threads diferentes não se misturam)
+    private void salvar(StatusConsulta evento, Consulta c) {
         try {
-            consultaRepo.salvarTodos(consultas);
+            switch (evento) {
+                case AGENDADA  -> consultaRepo.registrarAgendada(c);
+                case CONCLUIDA -> consultaRepo.registrarConcluida(c);
+                case CANCELADA -> consultaRepo.registrarCancelada(c);
+            }
         } catch (java.io.IOException e) {
             throw new RuntimeException("Erro salvando consultas.csv", e);
         }
     }
 
 
-    // Agenda uma nova consulta aplicando validações e descontos de plano
-    public Consulta agendar(String cpfPaciente, String crmMedico, LocalDateTime dataHora, String local) {
+    // Valida o pedido, busca paciente/médico e calcula o preço (ainda SEM reservar horário)
+    private Consulta montarConsulta(String cpfPaciente, String crmMedico, LocalDateTime dataHora, String local) {
         // 1) validar entradas
         if (cpfPaciente == null || cpfPaciente.isBlank()) throw new IllegalArgumentException("CPF do paciente vazio");
         if (crmMedico  == null || crmMedico.isBlank())    throw new IllegalArgumentException("CRM do médico vazio");
@@ -47,23 +149,7 @@ public class AgendamentoService {
         Medico medico = medicoRepo.buscarPorCrm(crmMedico)
                 .orElseThrow(() -> new IllegalArgumentException("Médico não encontrado: " + crmMedico));
 
-        // 3) conflito: mesmo médico + mesma data/hora (ignora CANCELADAS)
-        boolean conflitoMedico = consultas.stream().anyMatch(c ->
-                c.getStatus() != StatusConsulta.CANCELADA &&
-                c.getMedico().getCrm().equalsIgnoreCase(crmMedico) &&
-                c.getDataHora().equals(dataHora)
-        );
-        if (conflitoMedico) throw new IllegalStateException("Conflito: o médico já tem consulta nesse horário.");
-
-        // 4) conflito: mesmo local + mesma data/hora (ignora CANCELADAS)
-        boolean conflitoLocal = consultas.stream().anyMatch(c ->
-                c.getStatus() != StatusConsulta.CANCELADA &&
-                c.getLocal().equalsIgnoreCase(local) &&
-                c.getDataHora().equals(dataHora)
-        );
-        if (conflitoLocal) throw new IllegalStateException("Conflito: o local já está ocupado nesse horário.");
-
-        // 5) calcular preço final (com plano, se houver)
+        // 3) calcular preço final (com plano, se houver)
         double base = medico.getCustoBaseConsulta();
         double precoFinal = (paciente.getPlano() == null)
                 ? base
@@ -72,40 +158,198 @@ public class AgendamentoService {
                         paciente.getIdade(),
                         base
                   );
+        return new Consulta(paciente, medico, dataHora, local, precoFinal);
+    }
+
+    // Checa conflitos e reserva o horário. Quem chama precisa estar com as listras
+    // do médico e do local travadas.
+    private void checarEReservar(Consulta nova) {
+        // conflito: mesmo médico com horário SOBREPOSTO (canceladas não estão no índice)
+        // ex.: com 30 min de duração, 10:00 e 10:15 conflitam
+        if (agendaDoMedico(nova.getMedico().getCrm()).conflita(nova.getDataHora()))
+            throw new IllegalStateException("Conflito: o médico já tem consulta nesse horário.");
+
+        // conflito: mesmo local com horário sobreposto
+        if (agendaDoLocal(nova.getLocal()).conflita(nova.getDataHora()))
+            throw new IllegalStateException("Conflito: o local já está ocupado nesse horário.");
+
+        reservar(nova);
+    }
 
-        // 6) criar, guardar e retornar
-        Consulta nova = new Consulta(paciente, medico, dataHora, local, precoFinal);
-        consultas.add(nova);
-        salvar();
+    // Agenda uma nova consulta aplicando validações e descontos de plano
+    public Consulta agendar(String cpfPaciente, String crmMedico, LocalDateTime dataHora, String local) {
+        Consulta nova = montarConsulta(cpfPaciente, crmMedico, dataHora, local);
+
+        // checar conflitos e reservar, ATOMICAMENTE para este médico e este local
+        int lm = listraDoMedico(nova.getMedico().getCrm());
+        int ll = listraDoLocal(nova.getLocal());
+        travar(lm, ll);
+        try {
+            checarEReservar(nova);
+        } finally {
+            destravar(lm, ll);
+        }
+
+        // persistir fora das travas; se falhar, devolve o horário
+        try {
+            salvar(StatusConsulta.AGENDADA, nova);
+        } catch (RuntimeException e) {
+            travar(lm, ll);
+            try { liberar(nova); } finally { destravar(lm, ll); }
+            throw e;
+        }
+
+        // só agora a consulta fica visível por id: assim nenhum CONCLUIDA/CANCELADA
+        // dela chega ao journal antes do AGENDADA
+        publicar(List.of(nova));
         return nova;
     }
 
-    // Apoio para testes/relatórios
+    // ===== AGENDAMENTO EM LOTE =====
+
+    // Um pedido do lote (mesmos campos de agendar())
+    public record PedidoAgendamento(String cpfPaciente, String crmMedico, LocalDateTime dataHora, String local) {}
+
+    // Resultado de UM pedido: a consulta criada OU o motivo da recusa
+    public record ResultadoAgendamento(PedidoAgendamento pedido, Consulta consulta, String erro) {
+        public boolean ok() { return consulta != null; }
+    }
+
+    // Agenda vários pedidos de uma vez (ex.: importação da central de atendimento).
+    // - valida tudo numa passada;
+    // - pedidos do próprio lote também conflitam entre si (vale o que vier primeiro na lista);
+    // - TUDO OU NADA: se um pedido for recusado, o lote inteiro é desfeito (nada é gravado
+    //   e nenhum horário fica reservado); os outros pedidos voltam com o erro "lote desfeito";
+    // - grava UMA vez só no journal (um append com todas as linhas).
+    // Devolve um resultado por pedido, na mesma ordem da lista.
+    public List<ResultadoAgendamento> agendarLote(List<PedidoAgendamento> pedidos) {
+        return agendarLote(pedidos, true);
+    }
+
+    // tudoOuNada = false: um pedido ruim NÃO derruba os outros (os aceitos são gravados)
+    public List<ResultadoAgendamento> agendarLote(List<PedidoAgendamento> pedidos, boolean tudoOuNada) {
+        if (pedidos == null) throw new IllegalArgumentException("lista de pedidos nula");
+
+        // 1) montar cada consulta (validação + busca + preço), sem travas
+        Consulta[] montadas = new Consulta[pedidos.size()];
+        String[] erros = new String[pedidos.size()];
+        TreeSet<Integer> listrasDoLote = new TreeSet<>(); // ordenadas: travar sempre na mesma ordem
+        for (int k = 0; k < pedidos.size(); k++) {
+            PedidoAgendamento p = pedidos.get(k);
+            try {
+                if (p == null) throw new IllegalArgumentException("pedido nulo");
+                montadas[k] = montarConsulta(p.cpfPaciente(), p.crmMedico(), p.dataHora(), p.local());
+                listrasDoLote.add(listraDoMedico(montadas[k].getMedico().getCrm()));
+                listrasDoLote.add(listraDoLocal(montadas[k].getLocal()));
+            } catch (IllegalArgumentException e) {
+                erros[k] = e.getMessage();
+            }
+        }
+
+        // 2) checar conflitos e reservar tudo com as listras envolvidas travadas.
+        //    Cada pedido aceito já entra na Agenda, então o próximo do lote enxerga ele.
+        List<Consulta> aceitas = new ArrayList<>();
+        for (int l : listrasDoLote) listras[l].lock();
+        try {
+            for (int k = 0; k < montadas.length; k++) {
+                if (montadas[k] == null) continue;
+                try {
+                    checarEReservar(montadas[k]);
+                    aceitas.add(montadas[k]);
+                } catch (IllegalStateException e) {
+                    erros[k] = e.getMessage();
+                    montadas[k] = null;
+                }
+            }
+
+            // algum recusado: devolve os horários já reservados (ainda com as listras travadas)
+            int recusado = primeiroErro(erros);
+            if (tudoOuNada && recusado >= 0) {
+                for (Consulta c : aceitas) liberar(c);
+                aceitas.clear();
+                for (int k = 0; k < montadas.length; k++) {
+                    if (montadas[k] == null) continue;
+                    montadas[k] = null;
+                    erros[k] = "lote desfeito: o pedido " + (recusado + 1) + " foi recusado";
+                }
+            }
+        } finally {
+            for (int l : listrasDoLote.descendingSet()) listras[l].unlock();
+        }
+
+        // 3) persistir uma vez só; se falhar, devolve todos os horários do lote
+        try {
+            if (!aceitas.isEmpty()) consultaRepo.registrarAgendadas(aceitas);
+        } catch (java.io.IOException e) {
+            for (int l : listrasDoLote) listras[l].lock();
+            try {
+                for (Consulta c : aceitas) liberar(c);
+            } finally {
+                for (int l : listrasDoLote.descendingSet()) listras[l].unlock();
+            }
+            throw new RuntimeException("Erro salvando consultas.csv", e);
+        }
+        publicar(aceitas);
+
+        List<ResultadoAgendamento> resultados = new ArrayList<>(pedidos.size());
+        for (int k = 0; k < pedidos.size(); k++) {
+            resultados.add(new ResultadoAgendamento(pedidos.get(k), montadas[k], erros[k]));
+        }
+        return resultados;
+    }
+
+    // índice do primeiro pedido recusado, ou -1
+    private static int primeiroErro(String[] erros) {
+        for (int k = 0; k < erros.length; k++) if (erros[k] != null) return k;
+        return -1;
+    }
+
+    // torna consultas já gravadas visíveis na lista e por id
+    private void publicar(List<Consulta> novas) {
+        synchronized (consultas) { consultas.addAll(novas); }
+        for (Consulta c : novas) porId.put(c.getId(), c);
+    }
+
+    // Apoio para testes/relatórios (cópia: pode ser percorrida enquanto outras threads agendam)
     public List<Consulta> listarTodas() {
-        return Collections.unmodifiableList(consultas);
+        synchronized (consultas) { return List.copyOf(consultas); }
     }
 
     // helper: acha consulta por id ou lança erro claro
     private Consulta acharPorId(String id) {
         if (id == null || id.isBlank()) throw new IllegalArgumentException("id vazio");
-        return consultas.stream()
-                .filter(c -> c.getId().equals(id))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Consulta não encontrada: " + id));
+        Consulta c = porId.get(id);
+        if (c == null) throw new IllegalArgumentException("Consulta não encontrada: " + id);
+        return c;
     }
 
     // concluir consulta
     public void concluir(String idConsulta, String diagnostico, String prescricao) {
         Consulta c = acharPorId(idConsulta);
-        c.concluir(diagnostico, prescricao); 
-        salvar();
+        int lm = listraDoMedico(c.getMedico().getCrm());
+        int ll = listraDoLocal(c.getLocal());
+        travar(lm, ll); // concluir x cancelar da mesma consulta também ficam em fila
+        try {
+            c.concluir(diagnostico, prescricao);
+        } finally {
+            destravar(lm, ll);
+        }
+        salvar(StatusConsulta.CONCLUIDA, c);
     }
 
     // cancelar consulta
     public void cancelar(String idConsulta) {
         Consulta c = acharPorId(idConsulta);
-        c.cancelar();
-        salvar();
+        int lm = listraDoMedico(c.getMedico().getCrm());
+        int ll = listraDoLocal(c.getLocal());
+        travar(lm, ll);
+        try {
+            c.cancelar();
+            liberar(c); // horário volta a ficar livre
+        } finally {
+            destravar(lm, ll);
+        }
+        salvar(StatusConsulta.CANCELADA, c);
     }
 
 }
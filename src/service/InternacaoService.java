@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.util.*;
 
 import model.Internacao;     // <- importante!
+import model.OcupacaoQuarto;
 import model.Paciente;
 import model.Medico;
 
@@ -19,14 +20,59 @@ public class InternacaoService {
     private final MedicoRepo   medicoRepo;
     private final InternacaoRepo internacaoRepo;
 
+    // índices mantidos junto com a lista (para não varrer anos de histórico):
+    // - uma linha do tempo por quarto (nome do quarto em maiúsculas)
+    // - a internação ATIVA (sem alta) de cada paciente, por CPF normalizado
+    private final Map<String, OcupacaoQuarto> ocupacaoPorQuarto = new HashMap<>();
+    private final Map<String, Internacao> ativaPorCpf = new LinkedHashMap<>();
+    private final Map<String, Internacao> porId = new HashMap<>(); // id -> internação (alta/cancelar em O(1))
+
     public InternacaoService(PacienteRepo pacienteRepo, MedicoRepo medicoRepo, InternacaoRepo internacaoRepo) {
         this.pacienteRepo = pacienteRepo;
         this.medicoRepo = medicoRepo;
         this.internacaoRepo = internacaoRepo;
+
+        // na partida: recupera as internações já salvas (ativas e com alta)
+        try { internacoes.addAll(internacaoRepo.carregarTodos()); }
+        catch (java.io.IOException e) { throw new RuntimeException("Erro carregando internacoes.csv", e); }
+
+        // Dados salvos com sobreposição no mesmo quarto (ex.: CSV editado à mão) não são descartados
+        // (a ocupação guarda essas à parte e continua as considerando em ocupado()), mas ficam
+        // registrados no log para alguém corrigir.
+        for (Internacao i : internacoes) {
+            if (ocupacao(i.getQuarto()).conflitaCom(i)) {
+                System.err.println("Aviso: internação " + i.getId() + " se sobrepõe a outra no quarto "
+                                   + i.getQuarto() + " (entrada " + i.getEntrada() + ")");
+            }
+            indexar(i);
+        }
+    }
+
+    // ---- índices ----
+
+    private OcupacaoQuarto ocupacao(String quarto) {
+        return ocupacaoPorQuarto.computeIfAbsent(quarto.trim().toUpperCase(Locale.ROOT), k -> new OcupacaoQuarto());
+    }
+
+    private static String chaveCpf(String cpf) {
+        return PacienteRepo.normalizarCpf(cpf);
     }
 
-    private void salvar() {
-        try { internacaoRepo.salvarTodos(internacoes); }
+    private void indexar(Internacao i) {
+        porId.put(i.getId(), i);
+        ocupacao(i.getQuarto()).ocupar(i);
+        if (i.getSaida() == null) ativaPorCpf.put(chaveCpf(i.getPaciente().getCpf()), i);
+    }
+
+    private void desindexar(Internacao i) {
+        porId.remove(i.getId());
+        ocupacao(i.getQuarto()).liberar(i);
+        ativaPorCpf.remove(chaveCpf(i.getPaciente().getCpf()), i);
+    }
+
+    // grava a lista toda; 'alterada'/'removida' dizem ao repositório o que mudou (o resto ele não revisita)
+    private void salvar(Collection<Internacao> alteradas, Collection<String> removidas) {
+        try { internacaoRepo.salvarTodos(internacoes, alteradas, removidas); }
         catch (java.io.IOException e) { throw new RuntimeException("Erro salvando internacoes.csv", e); }
     }
 
@@ -53,25 +99,13 @@ public class InternacaoService {
     // 3) regra de QUARTO OCUPADO (checa sobreposição)
     // Intervalos [A_início, A_fim) e [B_início, B_fim) se sobrepõem se:
     // A_início < B_fim E B_início < A_fim
-    for (Internacao i : internacoes) {
-        if (!i.getQuarto().equalsIgnoreCase(quarto)) continue;
-
-        LocalDateTime aIni = i.getEntrada();
-        LocalDateTime aFim = (i.getSaida() != null) ? i.getSaida() : LocalDateTime.MAX;
-
-        LocalDateTime bIni = entrada;
-        LocalDateTime bFim = LocalDateTime.MAX; // nova internação ainda sem alta
-
-        boolean sobrepoe = aIni.isBefore(bFim) && bIni.isBefore(aFim);
-        if (sobrepoe) {
-            throw new IllegalStateException("Quarto " + quarto + " já ocupado no período.");
-        }
+    // A linha do tempo do quarto responde isso em O(log n) (ver OcupacaoQuarto).
+    if (ocupacao(quarto).ocupado(entrada)) {
+        throw new IllegalStateException("Quarto " + quarto + " já ocupado no período.");
     }
 
     // 3.1) Não permitir DUAS internações ATIVAS do MESMO paciente
-    boolean jaAtivo = internacoes.stream()
-        .anyMatch(i -> i.getPaciente().getCpf().equals(cpfPaciente) && i.getSaida() == null);
-    if (jaAtivo) {
+    if (ativaPorCpf.containsKey(chaveCpf(paciente.getCpf()))) {
         throw new IllegalStateException("Paciente já possui internação ativa.");
     }
 
@@ -79,7 +113,8 @@ public class InternacaoService {
     // 4) criar, guardar e persistir
     Internacao nova = new Internacao(paciente, medico, quarto, entrada, custoBaseDia);
     internacoes.add(nova);
-    salvar();
+    indexar(nova);
+    salvar(List.of(nova), List.of());
 
     // 5) retornar a internação criada
     return nova;
@@ -89,25 +124,26 @@ public class InternacaoService {
     public void alta(String idInternacao, LocalDateTime saida) {
         Internacao i = acharPorId(idInternacao);
         i.darAlta(saida);
-        salvar();
+        ativaPorCpf.remove(chaveCpf(i.getPaciente().getCpf()), i); // o quarto já "encurta" sozinho (usa getSaida)
+        salvar(List.of(i), List.of());
     }
 
     public void cancelar(String idInternacao) {
         Internacao i = acharPorId(idInternacao);
         if (i.getSaida() != null) throw new IllegalStateException("Não é possível cancelar após alta.");
         internacoes.remove(i); // simples: remove a internação ativa
-        salvar();
+        desindexar(i);
+        salvar(List.of(), List.of(i.getId()));
     }
 
     public List<Internacao> listarAtivas() {
-        return internacoes.stream().filter(i -> i.getSaida() == null).toList();
+        return List.copyOf(ativaPorCpf.values());
     }
 
     private Internacao acharPorId(String id) {
         if (id == null || id.isBlank()) throw new IllegalArgumentException("id vazio");
-        return internacoes.stream()
-                .filter(i -> i.getId().equals(id))
-                .findFirst()
-                .orElseThrow(() -> new IllegalArgumentException("Internação não encontrada: " + id));
+        Internacao i = porId.get(id);
+        if (i == null) throw new IllegalArgumentException("Internação não encontrada: " + id);
+        return i;
     }
 }
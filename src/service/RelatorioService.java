@@ -4,10 +4,17 @@ import model.*;                  // Consulta, Especialidade, StatusConsulta, Pac
 import repo.*;                   // PacienteRepo, MedicoRepo, ConsultaRepo, InternacaoRepo
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
 
+// Períodos: TODOS os relatórios com período (totaisFinanceiros, top*/ranking, estatisticaPlanos)
+// recebem LocalDate inicio/fim INCLUSIVOS — de 01/03 a 31/03 = março inteiro; null = sem limite.
+// Um registro entra pelo dia dele (consulta: data da consulta; internação: data da alta).
 public class RelatorioService {
 
     private final PacienteRepo   pacienteRepo;
@@ -24,8 +31,9 @@ public class RelatorioService {
 
     // ===== 1) CONSULTAS FUTURAS (com filtros opcionais) =====
     public List<Consulta> consultasFuturas(String cpfPaciente, String crmMedico, Especialidade esp) throws Exception {
-        List<Consulta> todas = consultaRepo.carregarTodos();
         LocalDateTime agora = LocalDateTime.now();
+        // só o período que interessa (com partições por mês, lê só os meses de agora em diante)
+        List<Consulta> todas = consultaRepo.carregarPeriodo(agora, null);
 
         return todas.stream()
                 .filter(c -> c.getDataHora().isAfter(agora))                     // só futuras
@@ -66,12 +74,105 @@ public class RelatorioService {
                 .toList();
     }
 
+    // ===== 2.1.1) PAGINAÇÃO por cursor (dataHora + id) =====
+    // As versões acima montam e ordenam a lista inteira. Estas devolvem só UMA página:
+    // o cursor é a (dataHora, id) do último item entregue e a próxima página começa logo
+    // depois dele (keyset), então páginas não se repetem nem pulam itens se algo for
+    // agendado no meio. As colunas já têm as linhas em ordem de (dataHora, id): uma busca
+    // binária acha o cursor (ou "agora") e a leitura segue dali até juntar 'tamanho + 1' itens.
+
+    public record Cursor(LocalDateTime dataHora, String id) {
+        public static Cursor de(Consulta c) { return new Cursor(c.getDataHora(), c.getId()); }
+    }
+
+    // 'proximo' == null: acabou
+    public record Pagina(List<Consulta> itens, Cursor proximo) {
+        public boolean temMais() { return proximo != null; }
+    }
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 10_000;
+
+    // Futuras em ordem crescente de data; 'depoisDe' null = primeira página
+    public Pagina consultasFuturas(String cpfPaciente, String crmMedico, Especialidade esp,
+                                   Cursor depoisDe, int tamanho) throws Exception {
+        return paginar(cpfPaciente, crmMedico, esp, true, Momento.FUTURAS, depoisDe, tamanho);
+    }
+
+    // Passadas da mais recente para a mais antiga
+    public Pagina consultasPassadas(String cpfPaciente, String crmMedico, Especialidade esp,
+                                    Cursor depoisDe, int tamanho) throws Exception {
+        return paginar(cpfPaciente, crmMedico, esp, true, Momento.PASSADAS, depoisDe, tamanho);
+    }
+
+    // Histórico do paciente (todas, inclusive canceladas) em ordem crescente de data
+    public Pagina historicoConsultasDoPaciente(String cpf, Cursor depoisDe, int tamanho) throws Exception {
+        if (cpf == null || cpf.isBlank()) throw new IllegalArgumentException("CPF vazio");
+        return paginar(cpf, null, null, false, Momento.TODAS, depoisDe, tamanho);
+    }
+
+    private enum Momento { FUTURAS, PASSADAS, TODAS }
+
+    private Pagina paginar(String cpfPaciente, String crmMedico, Especialidade esp, boolean semCanceladas,
+                           Momento momento, Cursor depoisDe, int tamanho) throws Exception {
+        if (tamanho <= 0 || tamanho > TAMANHO_MAXIMO_PAGINA) {
+            throw new IllegalArgumentException("Tamanho de página inválido: " + tamanho);
+        }
+        // 'tamanho + 1' itens: o último só diz se existe próxima página
+        List<Consulta> itens = new ArrayList<>();
+        percorrer(cpfPaciente, crmMedico, esp, semCanceladas, momento, depoisDe, c -> {
+            itens.add(c);
+            return itens.size() <= tamanho;
+        });
+        if (itens.size() <= tamanho) return new Pagina(itens, null);
+        itens.remove(itens.size() - 1);
+        return new Pagina(itens, Cursor.de(itens.get(itens.size() - 1)));
+    }
+
+    // Entrega ao visitante, na ordem da listagem, as consultas que passam nos filtros
+    // (futuras/histórico: data crescente; passadas: decrescente), a partir do cursor
+    private void percorrer(String cpfPaciente, String crmMedico, Especialidade esp, boolean semCanceladas,
+                           Momento momento, Cursor depoisDe, Predicate<Consulta> visitante) throws Exception {
+        if (depoisDe != null && (depoisDe.dataHora() == null || depoisDe.id() == null)) {
+            throw new IllegalArgumentException("Cursor incompleto");
+        }
+        ColunasConsultas col = consultaRepo.colunas();
+
+        // filtros viram ordinais: a leitura compara ints em vez de Strings
+        int paciente = -1, medico = -1;
+        if (cpfPaciente != null && !cpfPaciente.isBlank()) {
+            paciente = col.ordinalPaciente(pacienteRepo.buscarPorCpf(cpfPaciente).orElse(null));
+            if (paciente < 0) return;
+        }
+        if (crmMedico != null && !crmMedico.isBlank()) {
+            medico = col.ordinalMedico(medicoRepo.buscarPorCrm(crmMedico).orElse(null));
+            if (medico < 0) return;
+        }
+
+        // faixa de posições na ordem por (dataHora, id): [de, ate)
+        LocalDateTime agora = LocalDateTime.now();
+        int de = 0, ate = col.tamanho();
+        if (momento == Momento.FUTURAS) de = col.posicaoNaOrdem(agora, null, true);
+        if (momento == Momento.PASSADAS) ate = col.posicaoNaOrdem(agora, null, false);
+        if (depoisDe != null) {
+            if (momento == Momento.PASSADAS) ate = Math.min(ate, col.posicaoNaOrdem(depoisDe.dataHora(), depoisDe.id(), false));
+            else de = Math.max(de, col.posicaoNaOrdem(depoisDe.dataHora(), depoisDe.id(), true));
+        }
+
+        boolean crescente = momento != Momento.PASSADAS;
+        for (int n = de; n < ate; n++) {
+            int k = col.linhaNaOrdem(crescente ? n : de + ate - 1 - n);
+            if (semCanceladas && col.status(k) == StatusConsulta.CANCELADA) continue;
+            if (paciente >= 0 && col.paciente(k) != paciente) continue;
+            if (medico >= 0 && col.medico(k) != medico) continue;
+            if (esp != null && col.medicoDoOrdinal(col.medico(k)).getEspecialidade() != esp) continue;
+            if (!visitante.test(col.consulta(k))) return;
+        }
+    }
+
     // ===== 2.2) HISTÓRICO de internações por paciente =====
     public List<Internacao> historicoInternacoesDoPaciente(String cpf) throws Exception {
         if (cpf == null || cpf.isBlank()) throw new IllegalArgumentException("CPF vazio");
-        List<Internacao> todas = internacaoRepo.carregarTodos();
-        return todas.stream()
-                .filter(i -> i.getPaciente().getCpf().equals(cpf))
+        return internacaoRepo.listarDoPaciente(cpf).stream() // só as dele, sem varrer as outras
                 .sorted(Comparator.comparing(Internacao::getEntrada))
                 .toList();
     }
@@ -83,45 +184,95 @@ public class RelatorioService {
     public record EstatPlanos(long basico, long plus, long especial, long nenhum, double economiaTotal) {}
 
     // ===== 3) MÉDICO que mais atendeu (CONCLUÍDAS) =====
+    // Contadores mantidos pelo ConsultaRepo a cada conclusão: não relê nem agrupa o histórico
     public Optional<TopMedico> medicoQueMaisAtendeu() throws Exception {
-        List<Consulta> todas = consultaRepo.carregarTodos();
-
-        Map<String, Long> porCrm = todas.stream()
-                .filter(c -> c.getStatus() == StatusConsulta.CONCLUIDA)
-                .collect(Collectors.groupingBy(c -> c.getMedico().getCrm(), Collectors.counting()));
-
-        return porCrm.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(e -> {
-                    String crm = e.getKey();
-                    long qtd   = e.getValue();
-                    String nome = medicoRepo.buscarPorCrm(crm)
-                            .map(Medico::getNome)
-                            .orElse(crm);
-                    return new TopMedico(nome, crm, qtd);
-                });
+        return consultaRepo.medicoComMaisConcluidas()
+                .map(e -> new TopMedico(e.getKey().getNome(), e.getKey().getCrm(), e.getValue()));
     }
 
     // ===== 4) ESPECIALIDADE MAIS PROCURADA (CONCLUÍDAS) =====
     public Optional<TopEspecialidade> especialidadeMaisProcurada() throws Exception {
-        List<Consulta> todas = consultaRepo.carregarTodos();
+        return consultaRepo.especialidadeComMaisConcluidas()
+                .map(e -> new TopEspecialidade(e.getKey(), e.getValue()));
+    }
 
-        Map<Especialidade, Long> porEsp = todas.stream()
-                .filter(c -> c.getStatus() == StatusConsulta.CONCLUIDA)
-                .collect(Collectors.groupingBy(c -> c.getMedico().getEspecialidade(), Collectors.counting()));
+    // ===== 4.1) TOTAIS FINANCEIROS por dia/mês/médico/plano =====
+    // Consultas (receita das concluídas, quantidades por status, economia) + internações
+    // (receita e economia na data da alta), já somados pelos repositórios a cada evento.
+    // Datas inclusivas; null = sem limite.
+    public SortedMap<String, TotaisFinanceiros.Totais> totaisFinanceiros(LocalDate inicio, LocalDate fim,
+                                                                        TotaisFinanceiros.Agrupamento por) throws Exception {
+        if (por == null) throw new IllegalArgumentException("Agrupamento nulo");
+        SortedMap<String, TotaisFinanceiros.Totais> resultado = new TreeMap<>(consultaRepo.totais(inicio, fim, por));
+        internacaoRepo.totais(inicio, fim, por).forEach((grupo, t) -> resultado.merge(grupo, t, TotaisFinanceiros.Totais::somar));
+        return resultado;
+    }
 
-        return porEsp.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(e -> new TopEspecialidade(e.getKey(), e.getValue()));
+    // ===== 4.2) RANKINGS (top K) num período =====
+    // Os totais do período já vêm somados por grupo (baldes por dia/mês, sem varrer o histórico);
+    // daqui só sai os K maiores, com um heap de tamanho K (sem ordenar todos os grupos).
+    public record Posicao(String grupo, String nome, long valor) {}
+
+    // Médicos com mais consultas CONCLUÍDAS entre as datas (inclusivas; null = sem limite)
+    public List<Posicao> topMedicos(LocalDate inicio, LocalDate fim, int k) throws Exception {
+        List<Posicao> top = ranking(TotaisFinanceiros.Agrupamento.MEDICO, inicio, fim, k,
+                                    TotaisFinanceiros.Totais::consultasConcluidas);
+        List<Posicao> comNome = new ArrayList<>(top.size());
+        for (Posicao p : top) {
+            String nome = medicoRepo.buscarPorCrm(p.grupo()).map(Medico::getNome).orElse(p.grupo());
+            comNome.add(new Posicao(p.grupo(), nome, p.valor()));
+        }
+        return comNome;
+    }
+
+    // Especialidades com mais consultas CONCLUÍDAS no período
+    public List<Posicao> topEspecialidades(LocalDate inicio, LocalDate fim, int k) throws Exception {
+        List<Posicao> top = ranking(TotaisFinanceiros.Agrupamento.ESPECIALIDADE, inicio, fim, k,
+                                    TotaisFinanceiros.Totais::consultasConcluidas);
+        List<Posicao> comNome = new ArrayList<>(top.size());
+        for (Posicao p : top) comNome.add(new Posicao(p.grupo(), Especialidade.valueOf(p.grupo()).toString(), p.valor()));
+        return comNome;
+    }
+
+    // Locais mais usados no período (consultas agendadas + concluídas; canceladas não ocupam)
+    public List<Posicao> topLocais(LocalDate inicio, LocalDate fim, int k) throws Exception {
+        return ranking(TotaisFinanceiros.Agrupamento.LOCAL, inicio, fim, k,
+                       t -> t.consultasAgendadas() + t.consultasConcluidas());
+    }
+
+    // Genérico: os K grupos de maior 'criterio' (só consultas), do maior para o menor.
+    // Grupos com valor 0 ficam de fora; empate: ordem alfabética do grupo.
+    public List<Posicao> ranking(TotaisFinanceiros.Agrupamento por, LocalDate inicio, LocalDate fim, int k,
+                                 ToLongFunction<TotaisFinanceiros.Totais> criterio) throws Exception {
+        if (por == null || criterio == null) throw new IllegalArgumentException("Agrupamento/critério nulo");
+        if (k <= 0) throw new IllegalArgumentException("k deve ser positivo");
+
+        Comparator<Posicao> ordem = Comparator.comparingLong(Posicao::valor)
+                .thenComparing(Posicao::grupo, Comparator.reverseOrder()); // "menor" = pior colocado
+        PriorityQueue<Posicao> heap = new PriorityQueue<>(ordem); // topo = pior dos K atuais
+
+        for (Map.Entry<String, TotaisFinanceiros.Totais> e : consultaRepo.totais(inicio, fim, por).entrySet()) {
+            long valor = criterio.applyAsLong(e.getValue());
+            if (valor <= 0) continue;
+            Posicao p = new Posicao(e.getKey(), e.getKey(), valor);
+            if (heap.size() < k) {
+                heap.add(p);
+            } else if (ordem.compare(p, heap.peek()) > 0) {
+                heap.poll(); // sai o pior, entra o novo
+                heap.add(p);
+            }
+        }
+
+        List<Posicao> resultado = new ArrayList<>(heap);
+        resultado.sort(ordem.reversed()); // só K elementos
+        return resultado;
     }
 
     // ===== 5) PACIENTES INTERNADOS AGORA (com duração em horas) =====
     public List<InternadoAgora> pacientesInternadosAgora() throws Exception {
-        List<Internacao> todas = internacaoRepo.carregarTodos();
         LocalDateTime agora = LocalDateTime.now();
 
-        return todas.stream()
-                .filter(i -> i.getSaida() == null) // ainda internados
+        return internacaoRepo.listarAtivas().stream() // ainda internados (mantidas pelo repositório)
                 .map(i -> {
                     long horas = Math.max(0, Duration.between(i.getEntrada(), agora).toHours());
                     return new InternadoAgora(
@@ -137,34 +288,67 @@ public class RelatorioService {
 
     // ===== 6) PLANOS: contagem por tipo + economia total =====
     public EstatPlanos estatisticaPlanos() throws Exception {
-        // contagem por tipo de plano
-        List<Paciente> pacientes = pacienteRepo.listarTodos();
-        long basico = pacientes.stream().filter(p -> p.getPlano() instanceof PlanoBasico).count();
-        long plus   = pacientes.stream().filter(p -> p.getPlano() instanceof PlanoPlus).count();
-        long esp    = pacientes.stream().filter(p -> p.getPlano() instanceof PlanoEspecial).count();
-        long nenhum = pacientes.stream().filter(p -> p.getPlano() == null).count();
-
-        double economia = 0.0;
-
-        // economia em CONSULTAS: considerar apenas CONCLUÍDAS
-        for (Consulta c : consultaRepo.carregarTodos()) {
-            if (c.getStatus() == StatusConsulta.CONCLUIDA) {
-                double base = c.getMedico().getCustoBaseConsulta();
-                double diff = Math.max(0, base - c.getPrecoFinal());
-                economia += diff;
-            }
+        return estatisticaPlanos(null, null);
+    }
+
+    // Mesmo relatório com a economia só das datas inicio..fim (inclusivas, como os outros
+    // relatórios; null = sem limite): consultas concluídas contam pela data da consulta,
+    // internações pela data da alta. A contagem de planos é sempre do cadastro atual (plano não tem data).
+    public EstatPlanos estatisticaPlanos(LocalDate inicio, LocalDate fim) throws Exception {
+        // contagem por tipo de plano: UMA passada pelos pacientes (em paralelo se forem muitos)
+        long[] porPlano = contarPlanos(pacienteRepo.listarTodos());
+
+        // economia de CONSULTAS concluídas (custo base - preço) e de INTERNAÇÕES com alta
+        // (dias * custoBaseDia - valor cobrado): as duas já vêm somadas nos baldes dos totais
+        // financeiros, então basta juntar os meses do período.
+        // Arredondamento: cada consulta/internação entra arredondada ao centavo e as somas são
+        // em centavos. Antes a economia era somada em double e só arredondada na impressão
+        // (%.2f); com muitos registros de frações de centavo o total impresso pode diferir
+        // em alguns centavos do antigo (o de agora não acumula erro).
+        long economiaCentavos = 0;
+        for (TotaisFinanceiros.Totais t : totaisFinanceiros(inicio, fim, TotaisFinanceiros.Agrupamento.MES).values()) {
+            economiaCentavos += t.economiaCentavos();
         }
 
-        // economia em INTERNAÇÕES: baseline (dias * custoBaseDia) - valor cobrado (calcularCustoTotal)
-        for (Internacao i : internacaoRepo.carregarTodos()) {
-            if (i.getSaida() == null) continue; // só completas
-            long dias = Math.max(1, Duration.between(i.getEntrada(), i.getSaida()).toDays());
-            double baseline = dias * i.getCustoBaseDia();
-            double cobrado  = i.calcularCustoTotal(); // já considera gratuidades <7d no seu modelo
-            double diff = Math.max(0, baseline - cobrado);
-            economia += diff;
+        return new EstatPlanos(porPlano[BASICO], porPlano[PLUS], porPlano[ESPECIAL], porPlano[NENHUM],
+                               economiaCentavos / 100.0);
+    }
+
+    // posições no array de contagem de planos
+    private static final int BASICO = 0, PLUS = 1, ESPECIAL = 2, NENHUM = 3;
+    private static final int LIMIAR_PARALELO = 100_000; // abaixo disso, dividir custa mais que ganha
+
+    // Conta os 4 tipos numa passada só. Lista grande: divide em faixas, uma tarefa do
+    // ForkJoinPool comum por faixa, e soma os resultados (mesma ideia do CSVUtil.lerRegistros).
+    private static long[] contarPlanos(List<Paciente> pacientes) {
+        int n = pacientes.size();
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (n < LIMIAR_PARALELO || pool.getParallelism() < 2) return contarPlanos(pacientes, 0, n);
+
+        int faixas = pool.getParallelism() * 4; // folga para faixas que demorarem mais
+        List<ForkJoinTask<long[]>> tarefas = new ArrayList<>();
+        for (int k = 0; k < faixas; k++) {
+            int ini = (int) ((long) n * k / faixas);
+            int fim = (int) ((long) n * (k + 1) / faixas);
+            tarefas.add(pool.submit(() -> contarPlanos(pacientes, ini, fim)));
         }
+        long[] total = new long[4];
+        for (ForkJoinTask<long[]> t : tarefas) {
+            long[] parcial = t.join();
+            for (int p = 0; p < total.length; p++) total[p] += parcial[p];
+        }
+        return total;
+    }
 
-        return new EstatPlanos(basico, plus, esp, nenhum, economia);
+    private static long[] contarPlanos(List<Paciente> pacientes, int ini, int fim) {
+        long[] cont = new long[4];
+        for (int k = ini; k < fim; k++) {
+            PlanoSaude plano = pacientes.get(k).getPlano();
+            if (plano == null)                        cont[NENHUM]++;
+            else if (plano instanceof PlanoBasico)    cont[BASICO]++;
+            else if (plano instanceof PlanoPlus)      cont[PLUS]++;
+            else if (plano instanceof PlanoEspecial)  cont[ESPECIAL]++;
+        }
+        return cont;
     }
 }
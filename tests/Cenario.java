@@ -0,0 +1,127 @@
+// Cenario.java — base comum dos cenários em tests/ (não é um cenário: não tem main).
+// Cada cenário estende esta classe, cria uma Pasta temporária com os CSVs mínimos,
+// "abre o sistema" sobre ela (repositórios e serviços novos, como um processo recém-iniciado)
+// e confere o resultado com checar().
+//
+// Como rodar um cenário (da raiz do projeto; não mexe em data/):
+//   javac -encoding UTF-8 -d /tmp/hospital $(find src -name "*.java") tests/*.java
+//   java -cp /tmp/hospital CenarioRecarga
+// Sai com código 1 na primeira checagem que falhar.
+
+import model.*;
+import repo.*;
+import service.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class Cenario {
+
+    // cadastro mínimo de toda pasta nova
+    static final String CPF1 = "70011122233";   // Paciente Um, plano PLUS
+    static final String CPF2 = "70022233344";   // Paciente Dois, sem plano
+    static final String CRM1 = "CRM/SP 1";      // Dra Ana, GERAL, 200.00
+    static final String CRM2 = "CRM/SP 2";      // Dr Beto, GERAL, 200.00
+    static final String CABECALHO_CONSULTAS =
+            "id;cpfPaciente;crmMedico;dataHoraISO;local;status;diagnostico;prescricao;precoFinal";
+
+    static Pasta novaPasta(String nome) throws IOException {
+        Pasta p = new Pasta(Files.createTempDirectory("cenario-" + nome).toString());
+        p.escrever("pacientes.csv", "cpf;nome;idade;plano",
+                   CPF1 + ";Paciente Um;28;PLUS",
+                   CPF2 + ";Paciente Dois;40;NENHUM");
+        p.escrever("medicos.csv", "crm;nome;cpf;idade;especialidade;custoBase",
+                   CRM1 + ";Dra Ana;08653764535;45;GERAL;200.0",
+                   CRM2 + ";Dr Beto;08653764536;50;GERAL;200.0");
+        p.escrever("consultas.csv", CABECALHO_CONSULTAS);
+        p.escrever("internacoes.csv");
+        return p;
+    }
+
+    // Pasta de dados de um cenário
+    static final class Pasta {
+        final String caminho;
+
+        Pasta(String caminho) { this.caminho = caminho; }
+
+        String arquivo(String nome) { return caminho + "/" + nome; }
+
+        void escrever(String nome, String... linhas) throws IOException {
+            Files.write(Path.of(arquivo(nome)), List.of(linhas), StandardCharsets.UTF_8);
+        }
+
+        void acrescentar(String nome, String... linhas) throws IOException {
+            Files.write(Path.of(arquivo(nome)), List.of(linhas), StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+
+        // linhas não vazias do arquivo (lista vazia se ele não existir)
+        List<String> linhas(String nome) throws IOException {
+            Path p = Path.of(arquivo(nome));
+            if (!Files.exists(p)) return List.of();
+            List<String> naoVazias = new ArrayList<>();
+            for (String l : Files.readAllLines(p, StandardCharsets.UTF_8)) if (!l.isBlank()) naoVazias.add(l);
+            return naoVazias;
+        }
+
+        boolean existe(String nome) { return Files.exists(Path.of(arquivo(nome))); }
+
+        Sistema abrir() throws IOException { return abrir(AgendamentoService.DURACAO_PADRAO); }
+
+        Sistema abrir(Duration duracaoConsulta) throws IOException { return new Sistema(this, duracaoConsulta); }
+    }
+
+    // Um "processo" do sistema: repositórios e serviços novos sobre os arquivos da pasta
+    static final class Sistema {
+        final PacienteRepo pacientes;
+        final MedicoRepo medicos;
+        final ConsultaRepo consultas;
+        final InternacaoRepo internacoes;
+        final AgendamentoService agendamento;
+        final InternacaoService internacao;
+        final RelatorioService relatorio;
+
+        Sistema(Pasta p, Duration duracaoConsulta) throws IOException {
+            pacientes   = new PacienteRepo(p.arquivo("pacientes.csv"));
+            medicos     = new MedicoRepo(p.arquivo("medicos.csv"));
+            consultas   = new ConsultaRepo(p.arquivo("consultas.csv"), pacientes, medicos);
+            internacoes = new InternacaoRepo(p.arquivo("internacoes.csv"), pacientes, medicos);
+            agendamento = new AgendamentoService(pacientes, medicos, consultas, duracaoConsulta);
+            internacao  = new InternacaoService(pacientes, medicos, internacoes);
+            relatorio   = new RelatorioService(pacientes, medicos, consultas, internacoes);
+        }
+    }
+
+    // ===== checagens =====
+
+    interface Acao { void executar() throws Exception; }
+
+    static void checar(boolean ok, String descricao) {
+        if (ok) return;
+        System.out.println("FALHOU: " + descricao);
+        System.exit(1);
+    }
+
+    // true se a ação foi recusada com IllegalArgumentException/IllegalStateException
+    static boolean recusada(Acao acao) throws Exception {
+        try {
+            acao.executar();
+            return false;
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return true;
+        }
+    }
+
+    static Consulta acharConsulta(List<Consulta> lista, String id) {
+        for (Consulta c : lista) if (c.getId().equals(id)) return c;
+        return null;
+    }
+
+    static void ok(String cenario) {
+        System.out.println(cenario + ": OK");
+    }
+}
@@ -0,0 +1,73 @@
+// CenarioCompactacao.java — journal de consultas (consultas.log) e compactação:
+// os eventos voltam no reinício, a compactação passa tudo para o snapshot e zera o journal,
+// e uma queda no meio (journal antigo ainda presente, ou .tmp pela metade) não perde nem
+// duplica nada. Também a compactação automática depois de muitos eventos.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CenarioCompactacao extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("compactacao");
+        LocalDateTime dia = LocalDateTime.of(2031, 3, 10, 8, 0);
+
+        // 1) eventos só no journal
+        Sistema s1 = pasta.abrir();
+        Consulta a = s1.agendamento.agendar(CPF1, CRM1, dia, "Sala 1");
+        Consulta b = s1.agendamento.agendar(CPF2, CRM1, dia.plusHours(1), "Sala 1");
+        Consulta c = s1.agendamento.agendar(CPF1, CRM2, dia.plusHours(2), "Sala 2");
+        s1.agendamento.concluir(b.getId(), "ok", "nada");
+        s1.agendamento.cancelar(c.getId());
+        checar(pasta.linhas("consultas.log").size() == 5, "5 eventos no journal");
+        checar(pasta.linhas("consultas.csv").size() == 1, "snapshot ainda só com o cabeçalho");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, "reinício só com o journal");
+        List<String> journalAntigo = pasta.linhas("consultas.log");
+
+        // 2) compactação: tudo no snapshot, journal vazio, nenhum temporário sobrando
+        s1.consultas.compactar();
+        checar(pasta.linhas("consultas.log").isEmpty(), "journal vazio depois de compactar");
+        checar(pasta.linhas("consultas.csv").size() == 4, "snapshot com as 3 consultas");
+        checar(!pasta.existe("consultas.csv.tmp"), "nenhum .tmp sobrando");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, "reinício depois de compactar");
+
+        // 3) queda entre gravar o snapshot e esvaziar o journal: o journal antigo é reaplicado
+        //    por cima do snapshot novo sem duplicar nem desfazer nada
+        pasta.acrescentar("consultas.log", journalAntigo.toArray(new String[0]));
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, "journal antigo sobre o snapshot novo");
+
+        // 4) queda no meio da gravação do snapshot: sobra um .tmp pela metade, o snapshot oficial
+        //    continua inteiro; a próxima compactação sobrescreve o .tmp
+        pasta.escrever("consultas.csv.tmp", CABECALHO_CONSULTAS, "meia-linha;" + CPF1);
+        Sistema s2 = pasta.abrir();
+        conferir(s2.agendamento.listarTodas(), a, b, c, ".tmp pela metade é ignorado");
+        s2.consultas.compactar();
+        checar(!pasta.existe("consultas.csv.tmp"), ".tmp substituído pela compactação");
+        checar(pasta.linhas("consultas.log").isEmpty(), "journal vazio de novo");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, "depois da segunda compactação");
+
+        // 5) compactação automática: 600 agendamentos passam do limite de eventos do journal
+        Sistema s3 = pasta.abrir();
+        for (int k = 0; k < 600; k++) {
+            s3.agendamento.agendar(k % 2 == 0 ? CPF1 : CPF2, k % 2 == 0 ? CRM1 : CRM2,
+                                   dia.plusDays(1).plusMinutes(30L * k), "Sala " + (k % 2));
+        }
+        checar(pasta.linhas("consultas.log").size() < 600, "journal compactado sozinho");
+        checar(pasta.linhas("consultas.csv").size() > 1 + 3, "snapshot recebeu os eventos compactados");
+        checar(pasta.abrir().agendamento.listarTodas().size() == 603, "603 consultas no reinício");
+
+        ok("CenarioCompactacao");
+    }
+
+    // as 3 consultas do começo, cada uma uma vez só e com o status certo
+    static void conferir(List<Consulta> todas, Consulta a, Consulta b, Consulta c, String etapa) {
+        checar(todas.size() == 3, etapa + ": 3 consultas (veio " + todas.size() + ")");
+        Consulta ra = acharConsulta(todas, a.getId()), rb = acharConsulta(todas, b.getId()), rc = acharConsulta(todas, c.getId());
+        checar(ra != null && ra.getStatus() == StatusConsulta.AGENDADA, etapa + ": A agendada");
+        checar(rb != null && rb.getStatus() == StatusConsulta.CONCLUIDA && "ok".equals(rb.getDiagnostico()), etapa + ": B concluída");
+        checar(rc != null && rc.getStatus() == StatusConsulta.CANCELADA, etapa + ": C cancelada");
+    }
+}
@@ -0,0 +1,67 @@
+// CenarioCsvGrande.java — leitura de CSV pequeno (sequencial) e grande (> 4 MB, em pedaços
+// paralelos) pelo CSVUtil.lerRegistros: mesma ordem, mesmos registros, e um byte inválido
+// em UTF-8 é erro nos DOIS caminhos (o tamanho do arquivo não decide se ele é aceito).
+// (como rodar: ver Cenario.java)
+
+import repo.CSVUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+
+public class CenarioCsvGrande extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        // o caminho paralelo só é usado com 2+ threads no pool comum (aqui, antes do primeiro uso)
+        System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "4");
+        Pasta pasta = novaPasta("csv-grande");
+
+        String pequeno = pasta.arquivo("pequeno.csv"), grande = pasta.arquivo("grande.csv");
+        int nPequeno = gerar(pequeno, 1_000, -1);
+        int nGrande = gerar(grande, 120_000, -1);
+        checar(Files.size(Path.of(grande)) > 4L * 1024 * 1024, "arquivo grande passa de 4 MB");
+
+        checarSequencia(CSVUtil.lerRegistros(pequeno, "id;", l -> l.campoInt(0)), nPequeno, "pequeno");
+        checarSequencia(CSVUtil.lerRegistros(grande, "id;", l -> l.campoInt(0)), nGrande, "grande");
+
+        // um byte 0xFF (nunca válido em UTF-8) no meio de cada arquivo
+        gerar(pequeno, 1_000, 500);
+        gerar(grande, 120_000, 60_000);
+        checar(rejeita(pequeno), "arquivo pequeno com byte inválido é rejeitado");
+        checar(rejeita(grande), "arquivo grande com byte inválido é rejeitado (não vira '\\uFFFD')");
+
+        ok("CenarioCsvGrande");
+    }
+
+    // "id;nome" com ids 0..n-1; se 'estragada' >= 0, essa linha leva um byte inválido
+    static int gerar(String caminho, int n, int estragada) throws IOException {
+        try (OutputStream out = Files.newOutputStream(Path.of(caminho))) {
+            out.write("id;nome\n".getBytes(StandardCharsets.UTF_8));
+            for (int k = 0; k < n; k++) {
+                out.write((k + ";Paciente de número " + k + " com um nome comprido para encher o arquivo").getBytes(StandardCharsets.UTF_8));
+                if (k == estragada) out.write(0xFF);
+                out.write('\n');
+            }
+        }
+        return n;
+    }
+
+    static void checarSequencia(List<Integer> ids, int n, String qual) {
+        checar(ids.size() == n, qual + ": " + n + " registros (veio " + ids.size() + ")");
+        for (int k = 0; k < n; k++) checar(ids.get(k) == k, qual + ": registro " + k + " fora de ordem");
+    }
+
+    static boolean rejeita(String caminho) {
+        try {
+            CSVUtil.lerRegistros(caminho, "id;", l -> l.campoInt(0));
+            return false;
+        } catch (CharacterCodingException e) {
+            return true;
+        } catch (IOException e) {
+            return e.getCause() instanceof CharacterCodingException;
+        }
+    }
+}
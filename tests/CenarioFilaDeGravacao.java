@@ -0,0 +1,90 @@
+// CenarioFilaDeGravacao.java — os três modos da FilaDeGravacao (SINCRONO, GRUPO, PERIODICO):
+// - pedidos em paralelo para o mesmo arquivo não perdem nem embaralham linhas de ninguém;
+// - "x.csv" e "./x.csv" são o MESMO arquivo (os pedidos se combinam na ordem certa);
+// - um erro de gravação só chega a quem gravou aquele arquivo, não a quem grava outro.
+// (como rodar: ver Cenario.java)
+
+import repo.FilaDeGravacao;
+import repo.FilaDeGravacao.Durabilidade;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CenarioFilaDeGravacao extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("fila-gravacao");
+
+        for (Durabilidade modo : Durabilidade.values()) {
+            FilaDeGravacao fila = new FilaDeGravacao(modo, 20);
+            String nome = modo.name().toLowerCase();
+
+            // 1) 4 threads x 200 linhas no mesmo arquivo
+            String paralelo = pasta.arquivo(nome + "-paralelo.txt");
+            fila.substituir(paralelo, List.of("cabecalho"));
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int id = t;
+                threads.add(new Thread(() -> {
+                    try {
+                        for (int k = 0; k < 200; k++) fila.acrescentar(paralelo, List.of(id + ";" + k));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            for (Thread t : threads) t.start();
+            for (Thread t : threads) t.join();
+            fila.esvaziar(paralelo);
+            List<String> linhas = pasta.linhas(nome + "-paralelo.txt");
+            checar(linhas.size() == 801 && linhas.get(0).equals("cabecalho"), modo + ": 800 linhas + cabeçalho (veio " + linhas.size() + ")");
+            int[] proxima = new int[4];
+            for (String l : linhas.subList(1, linhas.size())) {
+                String[] p = l.split(";");
+                int t = Integer.parseInt(p[0]);
+                checar(Integer.parseInt(p[1]) == proxima[t]++, modo + ": linhas da thread " + t + " na ordem");
+            }
+
+            // 2) o mesmo arquivo por dois caminhos: acrescentar, substituir, acrescentar
+            String direto = pasta.arquivo(nome + "-mesmo.txt");
+            String volta  = pasta.caminho + "/./" + nome + "-mesmo.txt";
+            fila.acrescentar(direto, List.of("velha"));
+            fila.substituir(volta, List.of("novo"));
+            fila.acrescentar(direto, List.of("depois"));
+            fila.esvaziar(direto);
+            checar(pasta.linhas(nome + "-mesmo.txt").equals(List.of("novo", "depois")),
+                   modo + ": caminhos diferentes do mesmo arquivo se combinam (veio " + pasta.linhas(nome + "-mesmo.txt") + ")");
+
+            // 3) arquivo impossível de gravar (a "pasta" dele é um arquivo) ao lado de um bom
+            pasta.escrever(nome + "-nao-e-pasta", "x");
+            String ruim = pasta.arquivo(nome + "-nao-e-pasta/dados.txt");
+            String bom  = pasta.arquivo(nome + "-bom.txt");
+            boolean erroNaHora = falha(() -> fila.acrescentar(ruim, List.of("perdida")));
+            checar(!falha(() -> fila.acrescentar(bom, List.of("ok"))), modo + ": gravar outro arquivo não recebe o erro");
+            checar(!falha(() -> fila.esvaziar(bom)), modo + ": esvaziar outro arquivo não recebe o erro");
+            checar(pasta.linhas(nome + "-bom.txt").equals(List.of("ok")), modo + ": arquivo bom gravado");
+            if (modo == Durabilidade.PERIODICO) {
+                checar(!erroNaHora, modo + ": o pedido volta na hora");
+                checar(falha(() -> fila.esvaziar(ruim)), modo + ": o erro chega em quem esvazia o arquivo que falhou");
+                checar(!falha(() -> fila.esvaziar(ruim)), modo + ": e chega uma vez só");
+                fila.acrescentar(ruim, List.of("de novo")); // pedido novo: volta na hora, falha depois
+                checar(falha(() -> fila.acrescentar(ruim, List.of("mais"))) || falha(() -> fila.esvaziar(ruim)),
+                       modo + ": o próximo pedido do mesmo arquivo recebe o erro");
+            } else {
+                checar(erroNaHora, modo + ": quem grava o arquivo ruim recebe o erro na hora");
+            }
+        }
+
+        ok("CenarioFilaDeGravacao");
+    }
+
+    static boolean falha(Acao acao) throws Exception {
+        try {
+            acao.executar();
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+// CenarioImportacao.java — importação em massa (importarCsv) de pacientes e médicos com
+// linhas repetidas e inválidas: confere o ResultadoImportacao (lidos, importados e o texto
+// de cada recusa) e que só as linhas boas foram gravadas. Também uma importação correndo
+// junto com um cadastro do mesmo CPF: só um dos dois entra.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+import repo.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+public class CenarioImportacao extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("importacao");
+
+        // ===== pacientes =====
+        pasta.escrever("novos_pacientes.csv",
+                "cpf;nome;idade;plano",
+                "800.111.222-33;Maria;30;BASICO",     // 1 ok (CPF com pontuação)
+                "80011122233;Maria de Novo;31;",      // 2 repetido no arquivo (mesmo CPF sem pontuação)
+                "70011122233;Ja Cadastrado;40;PLUS",  // 3 já existe no cadastro
+                "8001112223;Curto;20;",               // 4 CPF com 10 dígitos
+                "80022233344;;20;",                   // 5 nome vazio
+                "80033344455;Idade Ruim;abc;",        // 6 idade não numérica
+                "80044455566;Plano Ruim;20;OURO",     // 7 plano desconhecido
+                "80055566677;Sem Colunas",            // 8 faltam colunas
+                "80066677788;Joao;50;ESPECIAL");      // 9 ok
+
+        PacienteRepo pacientes = pasta.abrir().pacientes;
+        ResultadoImportacao rp = pacientes.importarCsv(pasta.arquivo("novos_pacientes.csv"));
+
+        checar(rp.lidos() == 9, "pacientes lidos = 9 (veio " + rp.lidos() + ")");
+        checar(rp.importados() == 2, "pacientes importados = 2 (veio " + rp.importados() + ")");
+        checar(rp.quantidadeRejeitados() == 7, "pacientes rejeitados = 7 (veio " + rp.quantidadeRejeitados() + ")");
+        List<String> rej = rp.rejeitados();
+        checarRecusa(rej.get(0), "registro 2: CPF repetido no arquivo (registro 1)", "Maria de Novo");
+        checarRecusa(rej.get(1), "registro 3: CPF já cadastrado", "Ja Cadastrado");
+        checarRecusa(rej.get(2), "registro 4: CPF deve ter 11 dígitos", "8001112223");
+        checarRecusa(rej.get(3), "registro 5: nome vazio", "80022233344");
+        checarRecusa(rej.get(4), "registro 6: idade inválida: abc", "Idade Ruim");
+        checarRecusa(rej.get(5), "registro 7: plano desconhecido: OURO", "Plano Ruim");
+        checarRecusa(rej.get(6), "registro 8: faltam colunas", "Sem Colunas");
+        checar(rp.toString().equals("lidos=9 importados=2 rejeitados=7"), "toString do resultado: " + rp);
+
+        checar(pacientes.buscarPorCpf("80011122233").map(Paciente::getNome).orElse("").equals("Maria"),
+               "a primeira Maria vence a repetida");
+        checar(pacientes.buscarPorCpf("70011122233").map(Paciente::getNome).orElse("").equals("Paciente Um"),
+               "paciente já cadastrado não é sobrescrito");
+        checar(pacientes.buscarPorCpf("80044455566").isEmpty(), "linha recusada não entra no cadastro");
+
+        // gravado no arquivo: um repositório novo enxerga os 4 (2 antigos + 2 importados)
+        PacienteRepo relido = pasta.abrir().pacientes;
+        checar(relido.listarTodos().size() == 4, "pacientes.csv com 4 pacientes (veio " + relido.listarTodos().size() + ")");
+        checar(relido.buscarPorCpf("80066677788").map(p -> p.getIdade() == 50).orElse(false), "Joao gravado com a idade");
+
+        // importar o mesmo arquivo de novo: nada entra, tudo vira "já cadastrado"/inválido
+        ResultadoImportacao denovo = relido.importarCsv(pasta.arquivo("novos_pacientes.csv"));
+        checar(denovo.importados() == 0 && denovo.quantidadeRejeitados() == 9, "reimportação não duplica ninguém");
+
+        // ===== médicos =====
+        pasta.escrever("novos_medicos.csv",
+                "crm;nome;cpf;idade;especialidade;custoBase",
+                "CRM/RJ 10;Dra Bia;11122233344;40;PEDIATRIA;180.0",  // 1 ok
+                "crm/rj 10;Dra Bia 2;11122233345;41;GERAL;100.0",    // 2 repetido (CRM ignora maiúsculas)
+                "CRM/SP 1;Dra Ana;08653764535;45;GERAL;200.0",       // 3 já cadastrado
+                "CRM/RJ 11;Dr Novo;11122233346;17;GERAL;100.0",      // 4 menor de idade
+                "CRM/RJ 12;Dr Esp;11122233347;40;ASTROLOGIA;100.0",  // 5 especialidade desconhecida
+                "CRM/RJ 13;Dr Custo;11122233348;40;GERAL;-5",        // 6 custo negativo
+                ";Sem Crm;11122233349;40;GERAL;100.0");              // 7 CRM vazio
+
+        MedicoRepo medicos = pasta.abrir().medicos;
+        ResultadoImportacao rm = medicos.importarCsv(pasta.arquivo("novos_medicos.csv"));
+
+        checar(rm.lidos() == 7 && rm.importados() == 1 && rm.quantidadeRejeitados() == 6, "médicos: " + rm);
+        List<String> rejM = rm.rejeitados();
+        checarRecusa(rejM.get(0), "registro 2: CRM repetido no arquivo (registro 1)", "Dra Bia 2");
+        checarRecusa(rejM.get(1), "registro 3: CRM já cadastrado", "CRM/SP 1");
+        checarRecusa(rejM.get(2), "registro 4: idade fora do intervalo: 17", "Dr Novo");
+        checarRecusa(rejM.get(3), "registro 5: especialidade desconhecida: ASTROLOGIA", "Dr Esp");
+        checarRecusa(rejM.get(4), "registro 6: custo base inválido: -5", "Dr Custo");
+        checarRecusa(rejM.get(5), "registro 7: CRM vazio", "Sem Crm");
+
+        MedicoRepo medRelido = pasta.abrir().medicos;
+        checar(medRelido.listarMedicos().size() == 3, "medicos.csv com 3 médicos");
+        checar(medRelido.buscarPorCrm("crm/rj 10").map(m -> m.getCustoBaseConsulta() == 180.0).orElse(false),
+               "Dra Bia gravada com o custo");
+
+        // ===== importação x cadastro em paralelo, com o mesmo CPF =====
+        // exatamente um dos dois entra; o outro é recusado como "já cadastrado"
+        PacienteRepo corrida = pasta.abrir().pacientes;
+        for (int k = 0; k < 30; k++) {
+            String cpf = String.format("811%08d", k);
+            pasta.escrever("corrida.csv", "cpf;nome;idade;plano", cpf + ";Importado;30;");
+            CountDownLatch largada = new CountDownLatch(1);
+            boolean[] cadastrou = new boolean[1];
+            Thread cadastro = new Thread(() -> {
+                try {
+                    largada.await();
+                    corrida.adicionar(new Paciente("Cadastrado", cpf, 30));
+                    cadastrou[0] = true;
+                } catch (IllegalArgumentException recusado) {
+                    // o import chegou antes
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            cadastro.start();
+            largada.countDown();
+            ResultadoImportacao r = corrida.importarCsv(pasta.arquivo("corrida.csv"));
+            cadastro.join();
+
+            checar(cadastrou[0] != (r.importados() == 1), "CPF " + cpf + ": um e só um dos dois entra");
+            long iguais = corrida.listarTodos().stream().filter(p -> p.getCpf().equals(cpf)).count();
+            checar(iguais == 1, "CPF " + cpf + " uma vez só no cadastro (veio " + iguais + ")");
+        }
+        checar(pasta.abrir().pacientes.listarTodos().size() == 4 + 30, "corrida gravada sem duplicados");
+
+        ok("CenarioImportacao");
+    }
+
+    // "registro N: motivo | linha original"
+    static void checarRecusa(String recusa, String inicio, String trechoDaLinha) {
+        checar(recusa.startsWith(inicio), "recusa deveria começar com \"" + inicio + "\", veio \"" + recusa + "\"");
+        checar(recusa.contains(" | ") && recusa.substring(recusa.indexOf(" | ")).contains(trechoDaLinha),
+               "recusa traz a linha original (" + trechoDaLinha + "): " + recusa);
+    }
+}
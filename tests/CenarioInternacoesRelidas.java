@@ -0,0 +1,50 @@
+// CenarioInternacoesRelidas.java — internacoes.csv reescrito por fora (outro processo ou à mão)
+// enquanto o sistema está aberto: o arquivo CRESCE e termina igual, mas uma linha do começo
+// trocou (INT-A saiu, INT-Z entrou no lugar, com o mesmo tamanho). A releitura tem que ver a
+// troca, e não só as linhas acrescentadas no fim.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CenarioInternacoesRelidas extends Cenario {
+
+    static final String CABECALHO = "id;cpfPaciente;crmMedico;quarto;entradaISO;saidaISO;custoBaseDia;custoTotal";
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("internacoes-relidas");
+        List<String> linhas = new ArrayList<>(List.of(CABECALHO, linha("INT-A", "101", 1)));
+        for (int k = 0; k < 10; k++) linhas.add(linha("INT-" + k, "2" + k, 2 + k)); // > 256 bytes depois de INT-A
+        pasta.escrever("internacoes.csv", linhas.toArray(new String[0]));
+
+        Sistema s = pasta.abrir();
+        checar(ids(s).contains("INT-A") && ids(s).size() == 11, "carga inicial com 11 internações");
+
+        // reescrita: INT-A vira INT-Z (mesmo tamanho de linha) e uma linha nova vai no fim
+        linhas.set(1, linha("INT-Z", "101", 1));
+        linhas.add(linha("INT-N", "301", 20));
+        pasta.escrever("internacoes.csv", linhas.toArray(new String[0]));
+
+        List<String> relidos = ids(s);
+        checar(relidos.contains("INT-N"), "linha nova do fim aparece");
+        checar(relidos.contains("INT-Z"), "linha trocada no começo aparece");
+        checar(!relidos.contains("INT-A"), "linha que saiu do arquivo some");
+        checar(relidos.size() == 12, "12 internações depois da releitura (veio " + relidos.size() + ")");
+
+        ok("CenarioInternacoesRelidas");
+    }
+
+    // internação de 2031-01-dd com alta 2 dias depois
+    static String linha(String id, String quarto, int dia) {
+        String entrada = String.format("2031-01-%02dT08:00", dia), saida = String.format("2031-01-%02dT08:00", dia + 2);
+        return id + ";" + CPF1 + ";" + CRM1 + ";" + quarto + ";" + entrada + ";" + saida + ";300.0;600.0";
+    }
+
+    static List<String> ids(Sistema s) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (Internacao i : s.internacoes.carregarTodos()) ids.add(i.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,68 @@
+// CenarioLote.java — agendamento em LOTE (agendarLote) com um pedido em conflito:
+// o lote inteiro é desfeito (nada gravado, nenhum horário preso) e cada pedido diz o motivo.
+// Também confere o modo parcial (tudoOuNada = false), em que só o pedido ruim fica de fora.
+// (como rodar: ver Cenario.java)
+
+import service.AgendamentoService;
+import service.AgendamentoService.PedidoAgendamento;
+import service.AgendamentoService.ResultadoAgendamento;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CenarioLote extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("lote");
+
+        AgendamentoService ag = pasta.abrir().agendamento;
+        LocalDateTime dez = LocalDateTime.of(2031, 7, 1, 10, 0);
+        ag.agendar(CPF1, CRM1, dez, "Sala 1"); // já marcada antes do lote
+
+        // 1) lote com o 3º pedido em conflito (mesmo médico, 10:15 contra a das 10:00)
+        List<PedidoAgendamento> lote = List.of(
+                new PedidoAgendamento(CPF2, CRM2, dez, "Sala 2"),
+                new PedidoAgendamento(CPF1, CRM2, dez.plusHours(1), "Sala 2"),
+                new PedidoAgendamento(CPF2, CRM1, dez.plusMinutes(15), "Sala 3"),
+                new PedidoAgendamento(CPF2, CRM1, dez.plusHours(2), "Sala 1"));
+        List<ResultadoAgendamento> res = ag.agendarLote(lote);
+
+        checar(res.size() == 4, "um resultado por pedido");
+        for (ResultadoAgendamento r : res) checar(!r.ok() && r.consulta() == null, "nenhum pedido aceito: " + r);
+        checar(res.get(2).erro().contains("médico"), "o pedido 3 diz o conflito de médico (veio: " + res.get(2).erro() + ")");
+        checar(res.get(0).erro().equals("lote desfeito: o pedido 3 foi recusado"), "os outros dizem que o lote foi desfeito");
+        checar(res.get(0).pedido() == lote.get(0), "resultado na mesma ordem dos pedidos");
+        checar(ag.listarTodas().size() == 1, "nada do lote entrou na lista (" + ag.listarTodas().size() + ")");
+
+        // nenhum horário ficou preso: os mesmos pedidos (sem o ruim) passam um a um
+        checar(ag.agendar(CPF2, CRM2, dez, "Sala 2") != null, "Sala 2 às 10:00 continua livre");
+        checar(ag.agendar(CPF1, CRM2, dez.plusHours(1), "Sala 2") != null, "CRM/SP 2 às 11:00 continua livre");
+
+        // e nada foi gravado: depois de reiniciar só existem as 3 marcadas fora do lote
+        checar(pasta.abrir().agendamento.listarTodas().size() == 3, "journal sem linhas do lote desfeito");
+
+        // 2) pedido inválido (paciente inexistente) também desfaz o lote
+        List<ResultadoAgendamento> res2 = ag.agendarLote(List.of(
+                new PedidoAgendamento(CPF2, CRM1, dez.plusHours(3), "Sala 1"),
+                new PedidoAgendamento("99999999999", CRM1, dez.plusHours(4), "Sala 1")));
+        checar(!res2.get(0).ok() && res2.get(1).erro().startsWith("Paciente não encontrado"),
+               "paciente inexistente desfaz o lote");
+        checar(ag.listarTodas().size() == 3, "lote inválido não grava nada");
+
+        // 3) lote sem problemas: todos aceitos e gravados de uma vez
+        List<ResultadoAgendamento> res3 = ag.agendarLote(List.of(
+                new PedidoAgendamento(CPF2, CRM1, dez.plusHours(3), "Sala 1"),
+                new PedidoAgendamento(CPF1, CRM1, dez.plusHours(4), "Sala 1")));
+        checar(res3.get(0).ok() && res3.get(1).ok(), "lote sem conflito é aceito inteiro");
+        checar(pasta.abrir().agendamento.listarTodas().size() == 5, "lote aceito sobrevive ao reinício");
+
+        // 4) modo parcial: só o pedido em conflito fica de fora
+        List<ResultadoAgendamento> res4 = ag.agendarLote(List.of(
+                new PedidoAgendamento(CPF2, CRM2, dez.plusHours(5), "Sala 2"),
+                new PedidoAgendamento(CPF1, CRM2, dez.plusHours(5).plusMinutes(10), "Sala 4")), false);
+        checar(res4.get(0).ok() && !res4.get(1).ok(), "modo parcial aceita o primeiro e recusa o conflito");
+        checar(pasta.abrir().agendamento.listarTodas().size() == 6, "modo parcial grava só o aceito");
+
+        ok("CenarioLote");
+    }
+}
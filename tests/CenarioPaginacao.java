@@ -0,0 +1,112 @@
+// CenarioPaginacao.java — paginação por cursor (keyset) dos relatórios de consultas:
+// futuras e histórico em ordem crescente de (data/hora, id), passadas em ordem decrescente;
+// juntando as páginas nada se repete nem falta, mesmo com consultas agendadas entre uma
+// página e outra; a última página (inclusive quando o total é múltiplo do tamanho) vem sem cursor.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+import service.RelatorioService.Cursor;
+import service.RelatorioService.Pagina;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+public class CenarioPaginacao extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("paginacao");
+        Sistema s = pasta.abrir();
+        LocalDateTime futuro = LocalDateTime.of(2031, 7, 1, 8, 0);
+        LocalDateTime passado = LocalDateTime.of(2020, 7, 1, 8, 0);
+
+        // futuras: de hora em hora, e às vezes duas no mesmo horário (desempate pelo id)
+        List<Consulta> futuras = new ArrayList<>();
+        for (int k = 0; k < 6; k++) {
+            futuras.add(s.agendamento.agendar(CPF1, CRM1, futuro.plusHours(k), "Sala 1"));
+            if (k % 2 == 0) futuras.add(s.agendamento.agendar(CPF2, CRM2, futuro.plusHours(k), "Sala 2"));
+        }
+        Consulta cancelada = futuras.remove(1);
+        s.agendamento.cancelar(cancelada.getId());
+
+        // passadas: 4 (uma concluída)
+        List<Consulta> passadas = new ArrayList<>();
+        for (int k = 0; k < 4; k++) passadas.add(s.agendamento.agendar(CPF1, CRM1, passado.plusDays(k), "Sala 1"));
+        s.agendamento.concluir(passadas.get(2).getId(), "ok", "nada");
+
+        // 1) futuras em páginas de 3: crescente, sem canceladas, última página sem cursor
+        List<Consulta> lidas = juntar(c -> s.relatorio.consultasFuturas(null, null, null, c, 3));
+        checar(ids(lidas).equals(ids(ordenadas(futuras, true))), "futuras: todas, uma vez, em ordem crescente");
+
+        // 2) agendar entre páginas: uma antes do cursor (não aparece, nada se repete) e uma depois (aparece)
+        Pagina p1 = s.relatorio.consultasFuturas(null, null, null, null, 3);
+        Consulta antes = s.agendamento.agendar(CPF2, CRM2, futuro.minusHours(1), "Sala 2");
+        Consulta depois = s.agendamento.agendar(CPF2, CRM2, futuro.plusDays(1), "Sala 2");
+        List<Consulta> resto = juntar(p1.proximo(), c -> s.relatorio.consultasFuturas(null, null, null, c, 3));
+        List<String> vistas = new ArrayList<>(ids(p1.itens()));
+        vistas.addAll(ids(resto));
+        checar(new HashSet<>(vistas).size() == vistas.size(), "agendar no meio não repete item");
+        checar(!vistas.contains(antes.getId()), "consulta antes do cursor fica para a próxima listagem");
+        checar(vistas.contains(depois.getId()), "consulta depois do cursor aparece");
+        futuras.add(depois);
+        checar(vistas.containsAll(ids(futuras)), "agendar no meio não pula item");
+        futuras.add(antes);
+
+        // 3) filtro por médico: só as do Dr Beto
+        List<Consulta> doBeto = juntar(c -> s.relatorio.consultasFuturas(null, CRM2, null, c, 2));
+        checar(!doBeto.isEmpty() && doBeto.stream().allMatch(c -> c.getMedico().getCrm().equals(CRM2)), "filtro por CRM");
+
+        // 4) passadas em páginas de 2 (4 itens: total múltiplo do tamanho): decrescente
+        Pagina a = s.relatorio.consultasPassadas(null, null, null, null, 2);
+        Pagina b = s.relatorio.consultasPassadas(null, null, null, a.proximo(), 2);
+        checar(a.temMais() && !b.temMais(), "passadas: 2 páginas, a última sem cursor");
+        List<Consulta> todasPassadas = new ArrayList<>(a.itens());
+        todasPassadas.addAll(b.itens());
+        checar(ids(todasPassadas).equals(ids(ordenadas(passadas, false))), "passadas em ordem decrescente");
+
+        // 5) histórico do paciente: passadas + futuras, inclusive a cancelada, crescente
+        List<Consulta> historico = juntar(c -> s.relatorio.historicoConsultasDoPaciente(CPF1, c, 4));
+        List<Consulta> doUm = new ArrayList<>(passadas);
+        for (Consulta c : futuras) if (c.getPaciente().getCpf().equals(CPF1)) doUm.add(c);
+        if (cancelada.getPaciente().getCpf().equals(CPF1)) doUm.add(cancelada);
+        checar(ids(historico).equals(ids(ordenadas(doUm, true))), "histórico do paciente completo e crescente");
+
+        // 6) entradas inválidas
+        checar(recusada(() -> s.relatorio.consultasFuturas(null, null, null, null, 0)), "tamanho 0 recusado");
+        checar(recusada(() -> s.relatorio.consultasFuturas(null, null, null, new Cursor(null, "x"), 3)), "cursor incompleto recusado");
+        checar(s.relatorio.consultasFuturas("00000000000", null, null, null, 3).itens().isEmpty(), "CPF desconhecido: página vazia");
+
+        ok("CenarioPaginacao");
+    }
+
+    interface Pedido { Pagina pedir(Cursor depoisDe) throws Exception; }
+
+    // todas as páginas, a partir do cursor, até a que vem sem cursor
+    static List<Consulta> juntar(Pedido pedido) throws Exception {
+        return juntar(null, pedido);
+    }
+
+    static List<Consulta> juntar(Cursor inicio, Pedido pedido) throws Exception {
+        List<Consulta> todas = new ArrayList<>();
+        Cursor cursor = inicio;
+        for (int n = 0; n < 100; n++) {
+            Pagina p = pedido.pedir(cursor);
+            todas.addAll(p.itens());
+            if (!p.temMais()) return todas;
+            cursor = p.proximo();
+        }
+        throw new IllegalStateException("paginação não termina");
+    }
+
+    static List<Consulta> ordenadas(List<Consulta> lista, boolean crescente) {
+        Comparator<Consulta> ordem = Comparator.comparing(Consulta::getDataHora).thenComparing(Consulta::getId);
+        List<Consulta> copia = new ArrayList<>(lista);
+        copia.sort(crescente ? ordem : ordem.reversed());
+        return copia;
+    }
+
+    static List<String> ids(List<Consulta> lista) {
+        List<String> ids = new ArrayList<>();
+        for (Consulta c : lista) ids.add(c.getId());
+        return ids;
+    }
+}
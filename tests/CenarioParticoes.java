@@ -0,0 +1,86 @@
+// CenarioParticoes.java — consultas particionadas por mês (-Dhospital.particionarConsultas=true):
+// a compactação grava um arquivo por mês + catálogo (sem .tmp sobrando), arquiva em .gz os meses
+// com mais de 12 meses, e tudo volta igual no reinício — inclusive uma consulta concluída depois
+// que o mês dela já estava arquivado. Um .tmp pela metade (queda no meio da gravação) é ignorado.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class CenarioParticoes extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("hospital.particionarConsultas", "true");
+        Pasta pasta = novaPasta("particoes");
+
+        YearMonth antigo = YearMonth.now().minusMonths(20), recente = YearMonth.now().minusMonths(14);
+        YearMonth futuro = YearMonth.now().plusMonths(2);
+        LocalDateTime d1 = antigo.atDay(10).atTime(9, 0), d2 = recente.atDay(10).atTime(9, 0);
+        LocalDateTime d3 = futuro.atDay(10).atTime(9, 0);
+
+        Sistema s1 = pasta.abrir();
+        Consulta a = s1.agendamento.agendar(CPF1, CRM1, d1, "Sala 1");
+        Consulta b = s1.agendamento.agendar(CPF2, CRM1, d2, "Sala 1");
+        Consulta c = s1.agendamento.agendar(CPF1, CRM2, d3, "Sala 2");
+        s1.agendamento.concluir(a.getId(), "gripe", "repouso");
+
+        // 1) compactação: um arquivo por mês, catálogo, meses antigos em .gz, consultas.csv só com o cabeçalho
+        s1.consultas.compactar();
+        checar(pasta.linhas("consultas/catalogo.csv").size() == 1 + 3, "catálogo com 3 meses");
+        checar(pasta.existe("consultas/" + antigo + ".csv.gz") && !pasta.existe("consultas/" + antigo + ".csv"),
+               "mês de 20 meses atrás arquivado (só o .gz)");
+        checar(pasta.existe("consultas/" + recente + ".csv.gz"), "mês de 14 meses atrás arquivado");
+        checar(pasta.linhas("consultas/" + futuro + ".csv").size() == 2, "mês futuro em CSV, com cabeçalho + 1");
+        checar(semTemporarios(pasta), "nenhum .tmp sobrando");
+        checar(pasta.linhas("consultas.csv").size() == 1, "consultas.csv só com o cabeçalho");
+        conferir(pasta.abrir(), a, b, c, false, "reinício depois de compactar");
+
+        // 2) mês já arquivado muda (b concluída): continua .gz e com o conteúdo novo
+        Sistema s2 = pasta.abrir();
+        s2.agendamento.concluir(b.getId(), "ok", "nada");
+        s2.consultas.compactar();
+        checar(pasta.existe("consultas/" + recente + ".csv.gz") && !pasta.existe("consultas/" + recente + ".csv"),
+               "mês arquivado continua arquivado");
+        checar(semTemporarios(pasta), "nenhum .tmp depois de regravar um .gz");
+        conferir(pasta.abrir(), a, b, c, true, "reinício depois de mudar um mês arquivado");
+
+        // 3) só o período pedido: o mês futuro sozinho
+        Sistema s3 = pasta.abrir();
+        List<Consulta> doMes = s3.consultas.carregarPeriodo(futuro.atDay(1).atStartOfDay(), futuro.plusMonths(1).atDay(1).atStartOfDay());
+        checar(doMes.size() == 1 && doMes.get(0).getId().equals(c.getId()), "período do mês futuro traz só a consulta dele");
+
+        // 4) queda no meio de uma gravação: .tmp pela metade ao lado do mês e do catálogo
+        pasta.escrever("consultas/" + futuro + ".csv.tmp", CABECALHO_CONSULTAS, "meia-linha;");
+        pasta.escrever("consultas/catalogo.csv.tmp", "periodo;arquivo;quantidade", "1999-01;1999-01.csv;1");
+        conferir(pasta.abrir(), a, b, c, true, ".tmp pela metade é ignorado");
+        Sistema s4 = pasta.abrir();
+        s4.agendamento.agendar(CPF2, CRM2, d3.plusHours(1), "Sala 2");
+        s4.consultas.compactar();
+        checar(semTemporarios(pasta), "próxima compactação substitui os .tmp");
+        checar(pasta.abrir().agendamento.listarTodas().size() == 4, "4 consultas depois da nova compactação");
+
+        ok("CenarioParticoes");
+    }
+
+    static void conferir(Sistema s, Consulta a, Consulta b, Consulta c, boolean bConcluida, String etapa) {
+        List<Consulta> todas = s.agendamento.listarTodas();
+        checar(todas.size() == 3, etapa + ": 3 consultas (veio " + todas.size() + ")");
+        Consulta ra = acharConsulta(todas, a.getId()), rb = acharConsulta(todas, b.getId()), rc = acharConsulta(todas, c.getId());
+        checar(ra != null && ra.getStatus() == StatusConsulta.CONCLUIDA && "gripe".equals(ra.getDiagnostico()), etapa + ": A concluída");
+        StatusConsulta esperado = bConcluida ? StatusConsulta.CONCLUIDA : StatusConsulta.AGENDADA;
+        checar(rb != null && rb.getStatus() == esperado, etapa + ": B " + esperado);
+        checar(rc != null && rc.getStatus() == StatusConsulta.AGENDADA, etapa + ": C agendada");
+    }
+
+    static boolean semTemporarios(Pasta pasta) throws IOException {
+        try (Stream<Path> arquivos = Files.list(Path.of(pasta.arquivo("consultas")))) {
+            return arquivos.noneMatch(p -> p.toString().endsWith(".tmp"));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+// CenarioQuartoSobreposto.java — internacoes.csv com internações SOBREPOSTAS no mesmo quarto
+// (CSV antigo ou editado à mão): A = [01/03, sem alta) e B = [05/03, 08/03). A carga mantém as
+// duas (com aviso), e o quarto continua ocupado depois de 08/03 porque A não saiu.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.time.LocalDateTime;
+
+public class CenarioQuartoSobreposto extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("quarto-sobreposto");
+        pasta.escrever("internacoes.csv",
+                "id;cpfPaciente;crmMedico;quarto;entradaISO;saidaISO;custoBaseDia;custoTotal",
+                "INT-A;" + CPF1 + ";" + CRM1 + ";201;2031-03-01T08:00;;300.0;",
+                "INT-B;" + CPF2 + ";" + CRM1 + ";201;2031-03-05T08:00;2031-03-08T08:00;300.0;900.0");
+
+        Sistema s = pasta.abrir();
+        checar(s.internacao.listarAtivas().size() == 1, "A continua ativa depois da carga");
+
+        LocalDateTime d4 = LocalDateTime.of(2031, 3, 10, 8, 0);
+        checar(recusada(() -> s.internacao.internar(CPF2, CRM1, "201", d4, 300.0)),
+               "quarto 201 ocupado por A depois da saída de B");
+        checar(recusada(() -> s.internacao.internar(CPF2, CRM1, "201", LocalDateTime.of(2031, 3, 6, 8, 0), 300.0)),
+               "quarto 201 ocupado no meio de B");
+        checar(recusada(() -> s.internacao.internar(CPF2, CRM1, "201", LocalDateTime.of(2031, 2, 1, 8, 0), 300.0)),
+               "entrada antes de A também conflita (a nova não tem fim)");
+
+        // alta de A: a partir da saída dela o quarto fica livre
+        s.internacao.alta("INT-A", LocalDateTime.of(2031, 3, 9, 8, 0));
+        Internacao nova = s.internacao.internar(CPF2, CRM1, "201", d4, 300.0);
+        checar(nova != null, "quarto 201 livre depois da alta de A");
+
+        // ocupação nova em outra ordem: mesmo resultado depois de reiniciar
+        Sistema s2 = pasta.abrir();
+        checar(recusada(() -> s2.internacao.internar(CPF1, CRM2, "201", d4.plusDays(1), 300.0)),
+               "a internação nova ocupa o quarto depois do reinício");
+
+        ok("CenarioQuartoSobreposto");
+    }
+}
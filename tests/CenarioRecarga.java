@@ -0,0 +1,78 @@
+// CenarioRecarga.java — cenário de REINÍCIO: abre o sistema, agenda/interna, "fecha",
+// abre de novo sobre os mesmos arquivos e confere que consultas e internações voltaram
+// (mesmos ids, status, alta e quarto ocupado). Linhas estragadas são puladas; um arquivo
+// que nem dá para ler impede a partida (em vez de abrir com a agenda vazia).
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.nio.file.*;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CenarioRecarga extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("recarga");
+        LocalDateTime dia = LocalDateTime.of(2031, 5, 20, 10, 0);
+
+        // 1) primeira execução: agenda duas consultas (conclui uma) e interna um paciente
+        Sistema s1 = pasta.abrir();
+        Consulta c1 = s1.agendamento.agendar(CPF1, CRM1, dia, "Sala 1");
+        Consulta c2 = s1.agendamento.agendar(CPF2, CRM1, dia.plusHours(1), "Sala 1");
+        s1.agendamento.concluir(c2.getId(), "gripe", "repouso");
+        Internacao i1 = s1.internacao.internar(CPF1, CRM1, "101", dia, 300.0);
+
+        // 2) reinício: tudo novo, lendo os mesmos arquivos
+        Sistema s2 = pasta.abrir();
+        List<Consulta> consultas = s2.agendamento.listarTodas();
+        checar(consultas.size() == 2, "2 consultas depois do reinício (veio " + consultas.size() + ")");
+        Consulta r1 = acharConsulta(consultas, c1.getId());
+        Consulta r2 = acharConsulta(consultas, c2.getId());
+        checar(r1 != null && r1.getStatus() == StatusConsulta.AGENDADA, "consulta 1 volta AGENDADA e com o mesmo id");
+        checar(r2 != null && r2.getStatus() == StatusConsulta.CONCLUIDA, "consulta 2 volta CONCLUIDA");
+        checar(r2 != null && "gripe".equals(r2.getDiagnostico()), "diagnóstico da consulta 2 preservado");
+        checar(r1 != null && r1.getDataHora().equals(dia) && r1.getLocal().equals("Sala 1"), "data e local preservados");
+
+        List<Internacao> ativas = s2.internacao.listarAtivas();
+        checar(ativas.size() == 1 && ativas.get(0).getId().equals(i1.getId()), "internação ativa volta com o mesmo id");
+
+        // as agendas/ocupações recarregadas continuam barrando conflitos
+        checar(recusada(() -> s2.agendamento.agendar(CPF2, CRM1, dia.plusMinutes(15), "Sala 2")),
+               "médico ocupado às 10:15 depois do reinício");
+        checar(recusada(() -> s2.internacao.internar(CPF2, CRM1, "101", dia.plusDays(1), 300.0)),
+               "quarto 101 continua ocupado depois do reinício");
+
+        // 3) alta e cancelamento depois do reinício, e mais um reinício
+        s2.internacao.alta(i1.getId(), dia.plusDays(3));
+        s2.agendamento.cancelar(c1.getId());
+
+        Sistema s3 = pasta.abrir();
+        checar(s3.internacao.listarAtivas().isEmpty(), "nenhuma internação ativa depois da alta");
+        Consulta r3 = acharConsulta(s3.agendamento.listarTodas(), c1.getId());
+        checar(r3 != null && r3.getStatus() == StatusConsulta.CANCELADA, "cancelamento sobrevive ao reinício");
+        Internacao nova = s3.internacao.internar(CPF2, CRM1, "101", dia.plusDays(4), 300.0);
+        checar(nova != null, "quarto 101 livre depois da alta");
+
+        // 4) linha estragada no consultas.csv/journal: o sistema ainda abre (a linha é pulada)
+        pasta.acrescentar("consultas.csv", "lixo;\"sem fim", ";;;;;;;;");
+        pasta.acrescentar("consultas.log", "AGENDADA;x;" + CPF1 + ";" + CRM1 + ";2031-13-99T10:00;y;z");
+        checar(pasta.abrir().agendamento.listarTodas().size() == 2, "linhas inválidas são ignoradas na partida");
+
+        // 5) arquivo ilegível (byte inválido em UTF-8): a partida falha em vez de abrir sem as
+        //    consultas salvas — com a agenda vazia, os horários de c2 pareceriam livres
+        Files.write(Path.of(pasta.arquivo("consultas.csv")), new byte[] { (byte) 0xFF, '\n' }, StandardOpenOption.APPEND);
+        checar(naoAbre(pasta), "consultas.csv ilegível impede a partida");
+
+        ok("CenarioRecarga");
+    }
+
+    static boolean naoAbre(Pasta pasta) throws Exception {
+        try {
+            pasta.abrir();
+            return false;
+        } catch (RuntimeException e) {
+            return e.getMessage().startsWith("Erro carregando consultas.csv");
+        }
+    }
+}
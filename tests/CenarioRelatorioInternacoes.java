@@ -0,0 +1,54 @@
+// CenarioRelatorioInternacoes.java — relatórios de internação que o repositório responde pelos
+// baldes (ativas, por paciente, totais financeiros): internados agora, histórico do paciente e
+// economia dos planos acompanham internar/alta/cancelar e também uma alta gravada por OUTRO
+// processo no internacoes.csv (recarga completa).
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+public class CenarioRelatorioInternacoes extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("relatorio-internacoes");
+        // Paciente Um com plano ESPECIAL (internação de menos de 7 dias não é cobrada)
+        pasta.escrever("pacientes.csv", "cpf;nome;idade;plano",
+                       CPF1 + ";Paciente Um;28;ESPECIAL",
+                       CPF2 + ";Paciente Dois;40;NENHUM");
+        LocalDateTime dia = LocalDateTime.of(2031, 6, 1, 8, 0);
+
+        Sistema s = pasta.abrir();
+        Internacao um = s.internacao.internar(CPF1, CRM1, "101", dia, 300.0);
+        Internacao dois = s.internacao.internar(CPF2, CRM1, "102", dia, 300.0);
+        checar(s.relatorio.pacientesInternadosAgora().size() == 2, "2 internados");
+
+        // alta do Paciente Um (ESPECIAL, < 7 dias: não paga) -> economia 3 * 300
+        s.internacao.alta(um.getId(), dia.plusDays(3));
+        checar(s.relatorio.pacientesInternadosAgora().size() == 1
+                       && s.relatorio.pacientesInternadosAgora().get(0).cpf().equals(CPF2), "só o Paciente Dois internado");
+        checar(s.relatorio.estatisticaPlanos().economiaTotal() == 900.0, "economia da alta = 900.00");
+        checar(s.relatorio.estatisticaPlanos(LocalDate.of(2031, 6, 4), LocalDate.of(2031, 6, 4)).economiaTotal() == 900.0,
+               "economia conta no dia da alta");
+        checar(s.relatorio.estatisticaPlanos(LocalDate.of(2031, 6, 5), null).economiaTotal() == 0.0,
+               "período depois da alta: sem economia");
+
+        // internação nova e cancelada: entra e sai do histórico do paciente
+        Internacao tres = s.internacao.internar(CPF1, CRM2, "103", dia.plusDays(5), 300.0);
+        checar(s.relatorio.historicoInternacoesDoPaciente(CPF1).size() == 2, "histórico do Paciente Um com 2");
+        s.internacao.cancelar(tres.getId());
+        checar(s.relatorio.historicoInternacoesDoPaciente(CPF1).size() == 1, "cancelada sai do histórico");
+        checar(s.relatorio.historicoInternacoesDoPaciente("00000000000").isEmpty(), "CPF desconhecido: histórico vazio");
+
+        // outro processo dá alta ao Paciente Dois: a recarga refaz ativas e histórico
+        Sistema outro = pasta.abrir();
+        outro.internacao.alta(dois.getId(), dia.plusDays(2));
+        checar(s.relatorio.pacientesInternadosAgora().isEmpty(), "alta gravada por outro processo tira o internado");
+        Internacao relida = s.relatorio.historicoInternacoesDoPaciente(CPF2).get(0);
+        checar(relida.getSaida() != null && relida.getSaida().equals(dia.plusDays(2)), "histórico relido com a alta");
+        checar(s.relatorio.estatisticaPlanos().economiaTotal() == 900.0, "sem plano: alta não muda a economia");
+
+        ok("CenarioRelatorioInternacoes");
+    }
+}
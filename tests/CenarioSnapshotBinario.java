@@ -0,0 +1,64 @@
+// CenarioSnapshotBinario.java — cópia binária (consultas.bin, -Dhospital.snapshotBinario=true):
+// a partida pelo .bin traz os mesmos status, preços e textos do CSV (inclusive um diagnóstico
+// com mais de 64 KB), um .bin estragado cai para o CSV, e não conseguir gravar o .bin só avisa —
+// a carga das consultas continua.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class CenarioSnapshotBinario extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("hospital.snapshotBinario", "true");
+        Pasta pasta = novaPasta("snapshot-binario");
+        LocalDateTime dia = LocalDateTime.of(2031, 5, 20, 9, 0);
+        String diagnosticoLongo = "Observação ".repeat(7_000); // ~84 KB em UTF-8
+
+        Sistema s1 = pasta.abrir();
+        Consulta a = s1.agendamento.agendar(CPF1, CRM1, dia, "Sala 1");
+        Consulta b = s1.agendamento.agendar(CPF2, CRM1, dia.plusHours(1), "Sala 1");
+        Consulta c = s1.agendamento.agendar(CPF1, CRM2, dia.plusHours(2), "Sala 2");
+        s1.agendamento.concluir(b.getId(), diagnosticoLongo, "repouso");
+        s1.agendamento.cancelar(c.getId());
+
+        // 1) compactar grava o CSV e, depois dele, o .bin (sem .tmp sobrando)
+        s1.consultas.compactar();
+        checar(pasta.existe("consultas.bin"), "consultas.bin gravado junto com o snapshot");
+        checar(!pasta.existe("consultas.bin.tmp"), "nenhum .bin.tmp sobrando");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, diagnosticoLongo, "partida pelo .bin");
+
+        // 2) .bin estragado (e mais novo que o CSV): volta para o CSV e grava um .bin bom
+        Path bin = Path.of(pasta.arquivo("consultas.bin"));
+        Files.write(bin, new byte[] { 0x48, 0x53, 0x50, 0x31, 3, 3, 0, 0, 0 });
+        Files.setLastModifiedTime(bin, FileTime.fromMillis(System.currentTimeMillis() + 60_000));
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, diagnosticoLongo, ".bin estragado cai para o CSV");
+        checar(Files.size(bin) > 80_000, ".bin regravado a partir do CSV");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, diagnosticoLongo, "partida pelo .bin regravado");
+
+        // 3) .bin impossível de gravar (no lugar dele há uma pasta com arquivo dentro):
+        //    a carga não pode cair por causa do cache
+        Files.delete(bin);
+        Files.createDirectories(bin);
+        Files.writeString(bin.resolve("ocupado"), "x");
+        conferir(pasta.abrir().agendamento.listarTodas(), a, b, c, diagnosticoLongo, "falha ao gravar o .bin só avisa");
+        checar(!pasta.existe("consultas.bin.tmp"), "temporário apagado depois da falha");
+
+        ok("CenarioSnapshotBinario");
+    }
+
+    static void conferir(List<Consulta> todas, Consulta a, Consulta b, Consulta c, String diag, String etapa) {
+        checar(todas.size() == 3, etapa + ": 3 consultas (veio " + todas.size() + ")");
+        Consulta ra = acharConsulta(todas, a.getId()), rb = acharConsulta(todas, b.getId()), rc = acharConsulta(todas, c.getId());
+        checar(ra != null && ra.getStatus() == StatusConsulta.AGENDADA && ra.getPrecoFinal() == a.getPrecoFinal(),
+               etapa + ": A agendada, com o mesmo preço");
+        checar(rb != null && rb.getStatus() == StatusConsulta.CONCLUIDA && diag.equals(rb.getDiagnostico())
+                       && "repouso".equals(rb.getPrescricao()), etapa + ": B concluída, diagnóstico inteiro");
+        checar(rc != null && rc.getStatus() == StatusConsulta.CANCELADA, etapa + ": C cancelada");
+        checar(ra.getDataHora().equals(a.getDataHora()) && "Sala 1".equals(ra.getLocal()), etapa + ": data e local de A");
+    }
+}
@@ -0,0 +1,70 @@
+// CenarioSobreposicao.java — conflito por SOBREPOSIÇÃO de horário (não só horário igual).
+// Com a duração padrão de 30 min, uma consulta às 10:00 ocupa [10:00, 10:30):
+// 10:15 conflita (mesmo médico ou mesmo local), 10:30 e 09:30 não.
+// (como rodar: ver Cenario.java)
+
+import model.*;
+import service.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+public class CenarioSobreposicao extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("sobreposicao");
+
+        checar(AgendamentoService.DURACAO_PADRAO.equals(Duration.ofMinutes(30)), "duração padrão é 30 min");
+
+        AgendamentoService ag = pasta.abrir().agendamento;
+        LocalDateTime dez = LocalDateTime.of(2031, 6, 10, 10, 0);
+        Consulta c10 = ag.agendar(CPF1, CRM1, dez, "Sala 1");
+
+        // mesmo médico, outra sala: 10:15 cai dentro de [10:00, 10:30)
+        checar(recusa(ag, CPF2, CRM1, dez.plusMinutes(15), "Sala 2", "médico"),
+               "10:15 com o mesmo médico é recusada");
+        // outro médico, mesma sala
+        checar(recusa(ag, CPF2, CRM2, dez.plusMinutes(15), "Sala 1", "local"),
+               "10:15 na mesma sala é recusada");
+        // começando antes e invadindo o horário das 10:00
+        checar(recusa(ag, CPF2, CRM1, dez.minusMinutes(15), "Sala 2", "médico"),
+               "09:45 com o mesmo médico é recusada");
+
+        // limites: intervalos [início, fim) só encostam, não se sobrepõem
+        checar(aceita(ag, CPF2, CRM1, dez.plusMinutes(30), "Sala 1"), "10:30 é aceita");
+        checar(aceita(ag, CPF2, CRM1, dez.minusMinutes(30), "Sala 1"), "09:30 é aceita");
+
+        // cancelada não ocupa mais o horário
+        ag.cancelar(c10.getId());
+        checar(aceita(ag, CPF2, CRM2, dez.plusMinutes(15), "Sala 3"),
+               "10:15 aceita depois de cancelar a das 10:00");
+
+        // com duração de 15 min (outra instância, mesmos arquivos), 10:45 encosta na das 10:30
+        AgendamentoService curto = pasta.abrir(Duration.ofMinutes(15)).agendamento;
+        checar(aceita(curto, CPF1, CRM1, dez.plusMinutes(45), "Sala 1"),
+               "com 15 min de duração, 10:45 é aceita");
+        checar(recusa(curto, CPF1, CRM1, dez.plusMinutes(50), "Sala 4", "médico"),
+               "com 15 min de duração, 10:50 ainda conflita com a das 10:45");
+
+        ok("CenarioSobreposicao");
+    }
+
+    // true se o agendamento foi recusado por conflito e a mensagem cita 'motivo' (médico/local)
+    static boolean recusa(AgendamentoService ag, String cpf, String crm, LocalDateTime quando, String local, String motivo) {
+        try {
+            ag.agendar(cpf, crm, quando, local);
+            return false;
+        } catch (IllegalStateException e) {
+            return e.getMessage().contains(motivo);
+        }
+    }
+
+    static boolean aceita(AgendamentoService ag, String cpf, String crm, LocalDateTime quando, String local) {
+        try {
+            return ag.agendar(cpf, crm, quando, local) != null;
+        } catch (IllegalStateException e) {
+            System.out.println("  recusada: " + e.getMessage());
+            return false;
+        }
+    }
+}
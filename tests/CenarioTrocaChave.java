@@ -0,0 +1,49 @@
+// CenarioTrocaChave.java — troca de CPF/CRM de quem já está no cadastro (setCpf/setCrm):
+// a chave nova passa a achar a pessoa e a antiga não; uma chave que já é de outra pessoa
+// é recusada e nada muda (os dois continuam achados pelas chaves de antes).
+// (como rodar: ver Cenario.java)
+
+import model.*;
+
+public class CenarioTrocaChave extends Cenario {
+
+    public static void main(String[] args) throws Exception {
+        Pasta pasta = novaPasta("troca-chave");
+        Sistema s = pasta.abrir();
+
+        // ===== pacientes =====
+        Paciente um = s.pacientes.buscarPorCpf(CPF1).orElseThrow();
+        Paciente dois = s.pacientes.buscarPorCpf(CPF2).orElseThrow();
+
+        checar(recusada(() -> dois.setCpf("700.111.222-33")), "CPF de outro paciente (com pontuação) é recusado");
+        checar(dois.getCpf().equals(CPF2), "CPF recusado não é trocado");
+        checar(s.pacientes.buscarPorCpf(CPF1).orElse(null) == um, "CPF1 continua achando o Paciente Um");
+        checar(s.pacientes.buscarPorCpf(CPF2).orElse(null) == dois, "CPF2 continua achando o Paciente Dois");
+
+        dois.setCpf("70033344455");
+        checar(s.pacientes.buscarPorCpf("70033344455").orElse(null) == dois, "CPF novo acha o paciente");
+        checar(s.pacientes.buscarPorCpf(CPF2).isEmpty(), "CPF antigo não acha mais ninguém");
+        dois.setCpf("700.333.444-55"); // mesmo CPF, só com pontuação: não é colisão com ele mesmo
+        checar(s.pacientes.buscarPorCpf("70033344455").orElse(null) == dois, "pontuação no próprio CPF é aceita");
+
+        s.pacientes.salvarNoArquivo();
+        Sistema relido = pasta.abrir();
+        checar(relido.pacientes.buscarPorCpf("70033344455").isPresent() && relido.pacientes.buscarPorCpf(CPF2).isEmpty(),
+               "troca de CPF gravada");
+
+        // ===== médicos =====
+        Medico ana = s.medicos.buscarPorCrm(CRM1).orElseThrow();
+        Medico beto = s.medicos.buscarPorCrm(CRM2).orElseThrow();
+
+        checar(recusada(() -> beto.setCrm("crm/sp 1")), "CRM de outro médico (outra caixa) é recusado");
+        checar(beto.getCrm().equals(CRM2), "CRM recusado não é trocado");
+        checar(s.medicos.buscarPorCrm(CRM1).orElse(null) == ana, "CRM1 continua achando a Dra Ana");
+        checar(s.medicos.buscarPorCrm(CRM2).orElse(null) == beto, "CRM2 continua achando o Dr Beto");
+
+        beto.setCrm("CRM/SP 3");
+        checar(s.medicos.buscarPorCrm("crm/sp 3").orElse(null) == beto, "CRM novo acha o médico");
+        checar(s.medicos.buscarPorCrm(CRM2).isEmpty(), "CRM antigo não acha mais ninguém");
+
+        ok("CenarioTrocaChave");
+    }
+}